@@ -14,7 +14,7 @@ import java.io.FileReader;
  * Tiện ích mã hóa cho client: load khóa, ký, xác thực, mã hóa AES.
  */
 public class CryptoUtils {
-    
+
     /**
      * Sinh cặp key RSA 2048 bit.
      */
@@ -183,7 +183,13 @@ public class CryptoUtils {
      * Đọc public key từ chuỗi Base64 (nhận từ server).
      */
     public static PublicKey loadPublicKeyFromBase64(String base64) throws Exception {
-        byte[] keyBytes = Base64.getDecoder().decode(base64);
+        return loadPublicKeyFromDer(Base64.getDecoder().decode(base64));
+    }
+
+    /**
+     * Đọc public key từ bytes DER (X.509) nhận trong frame PUBLIC_KEY.
+     */
+    public static PublicKey loadPublicKeyFromDer(byte[] keyBytes) throws Exception {
         X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
         KeyFactory kf = KeyFactory.getInstance("RSA");
         return kf.generatePublic(spec);
@@ -198,4 +204,22 @@ public class CryptoUtils {
         byte[] encrypted = cipher.doFinal(data);
         return Base64.getEncoder().encodeToString(encrypted);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Sinh session key AES-256 cho một kết nối (gửi lên server một lần trong handshake).
+     */
+    public static SecretKey generateSessionKey() throws Exception {
+        KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+        keyGen.init(256);
+        return keyGen.generateKey();
+    }
+
+    /**
+     * Mã hóa session key bằng public key RSA của server, trả về bytes thô cho frame HANDSHAKE.
+     */
+    public static byte[] encryptSessionKey(SecretKey sessionKey, PublicKey serverPublicKey) throws Exception {
+        Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, serverPublicKey);
+        return cipher.doFinal(sessionKey.getEncoded());
+    }
+}
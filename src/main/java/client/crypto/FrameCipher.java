@@ -0,0 +1,116 @@
+package client.crypto;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.util.AttributeKey;
+import client.protocol.Frame;
+import client.protocol.FrameType;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.GeneralSecurityException;
+import java.util.List;
+
+/**
+ * Stage mã hóa trong pipeline: AES-GCM chạy thẳng trên ByteBuf direct (pooled),
+ * payload trên dây là ciphertext + tag 16 byte, không qua byte[]/Base64/JSON bọc ngoài.
+ * Nonce 12 byte = [hướng 4 byte][số thứ tự frame 8 byte], không gửi kèm vì TCP giữ
+ * thứ tự frame; loại frame nằm trong AAD. Frame chỉ được mã hóa khi channel đã có
+ * session key, riêng PUBLIC_KEY và HANDSHAKE luôn đi dạng thô.
+ */
+public class FrameCipher extends MessageToMessageCodec<Frame, Frame> {
+    /** Session key AES của kết nối, thiết lập trong handshake. */
+    public static final AttributeKey<SecretKey> SESSION_KEY = AttributeKey.valueOf("sessionKey");
+    public static final int TAG_LENGTH = 16;
+    private static final int NONCE_LENGTH = 12;
+    private static final int CLIENT_TO_SERVER = 0x43324053; // "C2@S"
+    private static final int SERVER_TO_CLIENT = 0x53324043; // "S2@C"
+
+    private final Cipher encryptCipher;
+    private final Cipher decryptCipher;
+    private final byte[] sendNonce = new byte[NONCE_LENGTH];
+    private final byte[] receiveNonce = new byte[NONCE_LENGTH];
+    private final byte[] aad = new byte[1];
+    private SecretKey sendKey;
+    private SecretKey receiveKey;
+    private long sendCounter;
+    private long receiveCounter;
+
+    public FrameCipher() throws GeneralSecurityException {
+        this.encryptCipher = Cipher.getInstance("AES/GCM/NoPadding");
+        this.decryptCipher = Cipher.getInstance("AES/GCM/NoPadding");
+    }
+
+    private static boolean isPlain(FrameType type) {
+        return type == FrameType.PUBLIC_KEY || type == FrameType.HANDSHAKE;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Frame frame, List<Object> out) throws Exception {
+        SecretKey key = ctx.channel().attr(SESSION_KEY).get();
+        if (key == null || isPlain(frame.type())) {
+            out.add(frame.retain());
+            return;
+        }
+        if (key != sendKey) {
+            // Key mới (handshake lại) thì đếm nonce lại từ đầu
+            sendKey = key;
+            sendCounter = 0;
+        }
+        ByteBuf plain = frame.content();
+        encryptCipher.init(Cipher.ENCRYPT_MODE, key, nonce(sendNonce, CLIENT_TO_SERVER, sendCounter++));
+        aad[0] = (byte) frame.type().code;
+        encryptCipher.updateAAD(aad);
+        ByteBuf sealed = ctx.alloc().directBuffer(plain.readableBytes() + TAG_LENGTH);
+        try {
+            int written = encryptCipher.doFinal(plain.nioBuffer(), sealed.nioBuffer(sealed.writerIndex(), sealed.writableBytes()));
+            sealed.writerIndex(written);
+        } catch (Exception e) {
+            sealed.release();
+            throw e;
+        }
+        out.add(new Frame(frame.type(), sealed));
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, Frame frame, List<Object> out) throws Exception {
+        SecretKey key = ctx.channel().attr(SESSION_KEY).get();
+        if (key == null || isPlain(frame.type())) {
+            out.add(frame.retain());
+            return;
+        }
+        if (key != receiveKey) {
+            receiveKey = key;
+            receiveCounter = 0;
+        }
+        ByteBuf sealed = frame.content();
+        if (sealed.readableBytes() < TAG_LENGTH) {
+            throw new GeneralSecurityException("Frame mã hóa quá ngắn: " + sealed.readableBytes() + " bytes");
+        }
+        decryptCipher.init(Cipher.DECRYPT_MODE, key, nonce(receiveNonce, SERVER_TO_CLIENT, receiveCounter++));
+        aad[0] = (byte) frame.type().code;
+        decryptCipher.updateAAD(aad);
+        ByteBuf plain = ctx.alloc().directBuffer(sealed.readableBytes() - TAG_LENGTH);
+        try {
+            int written = decryptCipher.doFinal(sealed.nioBuffer(), plain.nioBuffer(plain.writerIndex(), plain.writableBytes()));
+            plain.writerIndex(written);
+        } catch (Exception e) {
+            plain.release();
+            throw e;
+        }
+        out.add(new Frame(frame.type(), plain));
+    }
+
+    private static GCMParameterSpec nonce(byte[] buf, int direction, long counter) {
+        buf[0] = (byte) (direction >>> 24);
+        buf[1] = (byte) (direction >>> 16);
+        buf[2] = (byte) (direction >>> 8);
+        buf[3] = (byte) direction;
+        for (int i = 0; i < 8; i++) {
+            buf[4 + i] = (byte) (counter >>> (56 - 8 * i));
+        }
+        return new GCMParameterSpec(TAG_LENGTH * 8, buf);
+    }
+}
@@ -35,6 +35,7 @@ public class GuiClient extends JFrame {
     private int lastTotalScanned = 0;
     private int lastTotalFound = 0;
     private String lastTargetDomain = "";
+    private boolean scanFinished = true; // Frame tổng kết của lượt scan trước đã nhận
 
     public GuiClient() {
         setTitle("Secure Chat Client");
@@ -391,20 +392,35 @@ public class GuiClient extends JFrame {
                                  List<String> foundDomains, int totalScanned,
                                  int totalFound, String targetDomain) {
         SwingUtilities.invokeLater(() -> {
-            boolean isNewDomain = !targetDomain.equals(lastTargetDomain);
-            if (isNewDomain) {
+            boolean partial = "PARTIAL".equals(status);
+            boolean isNewDomain = targetDomain != null && !targetDomain.equals(lastTargetDomain);
+            if (isNewDomain || scanFinished) {
                 allFoundDomains.clear();
                 lastTargetDomain = targetDomain;
                 updateLog("🔄 Bắt đầu scan mới cho domain: " + targetDomain + ", reset danh sách subdomain!");
+                if (partial) {
+                    scanResultArea.setText("🔍 ĐANG SCAN: " + targetDomain + "\n========================================\n\n");
+                }
             }
+            scanFinished = !partial;
             int before = allFoundDomains.size();
             if (foundDomains != null && !foundDomains.isEmpty()) {
                 for (String d : foundDomains) {
-                    if (!allFoundDomains.contains(d))
+                    if (!allFoundDomains.contains(d)) {
                         allFoundDomains.add(d);
+                        if (partial) {
+                            scanResultArea.append(String.format("%2d. %s\n", allFoundDomains.size(), d));
+                        }
+                    }
                 }
             }
             int after = allFoundDomains.size();
+
+            if (partial) {
+                // Frame kết quả trung gian: hiển thị ngay, chờ frame tổng kết
+                updateLog("📥 Nhận " + (after - before) + " subdomain mới, đã nhận: " + after);
+                return;
+            }
             lastTotalScanned = totalScanned;
             lastTotalFound = totalFound;
 
@@ -4,11 +4,12 @@ import io.netty.channel.*;
 import client.gui.GuiClient;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import client.model.MessageResponse;
+import client.protocol.Frame;
 
 /**
  * Xử lý message đến/đi cho Netty client, cập nhật log GUI.
  */
-public class NettyClientHandler extends SimpleChannelInboundHandler<String> {
+public class NettyClientHandler extends SimpleChannelInboundHandler<Frame> {
     private final GuiClient gui;
 
     public NettyClientHandler(GuiClient gui) {
@@ -16,10 +17,10 @@ public class NettyClientHandler extends SimpleChannelInboundHandler<String> {
     }
 
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, String msg) {
+    protected void channelRead0(ChannelHandlerContext ctx, Frame frame) {
         // Không xử lý gì ở đây nữa, mọi xử lý đã chuyển sang NettyClient
         // Nếu cần log debug:
-        gui.updateLog("[DEBUG] Đã nhận message ở handler phụ: " + msg.substring(0, Math.min(100, msg.length())) + "...");
+        gui.updateLog("[DEBUG] Đã nhận frame ở handler phụ: " + frame);
     }
 
     @Override
@@ -4,14 +4,21 @@ import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.LineBasedFrameDecoder;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
 import client.gui.GuiClient;
 import client.crypto.CryptoUtils;
 import client.model.MessageRequest;
+import client.crypto.FrameCipher;
+import client.protocol.Compression;
+import client.protocol.Frame;
+import client.protocol.FrameCodec;
+import client.protocol.FrameCompressor;
+import client.protocol.FrameType;
+import client.protocol.IndexBitmap;
+import client.protocol.LocalWordlists;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.JsonNode;
 import javax.crypto.SecretKey;
 import java.security.PrivateKey;
 import java.nio.file.Files;
@@ -19,9 +26,8 @@ import java.nio.file.Paths;
 import java.util.Base64;
 import io.netty.channel.ChannelOption;
 import java.util.ArrayList;
+import java.util.List;
 import java.security.PublicKey;
-import io.netty.handler.codec.DelimiterBasedFrameDecoder;
-import io.netty.buffer.Unpooled;
 
 /**
  * Quản lý kết nối Netty client, cấu hình pipeline và handler.
@@ -34,6 +40,7 @@ public class NettyClient {
     private String currentHost;
     private int currentPort;
     private PublicKey serverPublicKey;
+    private volatile SecretKey sessionKey; // Session key AES đã được server xác nhận
 
     public NettyClient(GuiClient gui) {
         this.gui = gui;
@@ -59,120 +66,103 @@ public class NettyClient {
                     .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000) // 10 giây timeout
                     .option(ChannelOption.SO_KEEPALIVE, true) // Giữ kết nối
                     .handler(new ChannelInitializer<Channel>() {
-                        // Trong phần initChannel của NettyClient.java, thay thế handler pipeline:
-
                         @Override
-                        protected void initChannel(Channel ch) {
-                            // Sử dụng LineBasedFrameDecoder thay vì DelimiterBasedFrameDecoder
+                        protected void initChannel(Channel ch) throws Exception {
+                            // Giao thức frame nhị phân có độ dài, mỗi frame tối đa FrameCodec.MAX_FRAME_LENGTH (16 MiB)
+                            FrameCodec.addTo(ch.pipeline());
+                            // Mã hóa/giải mã AES-GCM bằng session key sau handshake
+                            ch.pipeline().addLast("frameCipher", new FrameCipher());
+                            // Nén trước khi mã hóa, giải nén sau khi giải mã
+                            ch.pipeline().addLast("frameCompressor", new FrameCompressor());
                             ch.pipeline().addLast(
-                                    new LineBasedFrameDecoder(65536), // Tách theo \n hoặc \r\n
-                                    new StringDecoder(),
-                                    new StringEncoder(),
-                                    new SimpleChannelInboundHandler<String>() {
-                                        // Buffer để tích lũy JSON chunks
-                                        private StringBuilder jsonBuffer = new StringBuilder();
-
+                                    new SimpleChannelInboundHandler<Frame>() {
                                         @Override
-                                        protected void channelRead0(ChannelHandlerContext ctx, String msg) {
+                                        protected void channelRead0(ChannelHandlerContext ctx, Frame frame) {
                                             try {
-                                                String line = msg.trim();
-
-                                                // Bỏ qua dòng trống
-                                                if (line.isEmpty()) return;
-
-                                                // Xử lý public key
-                                                if (line.startsWith("PUBLIC_KEY:")) {
-                                                    String base64Key = line.substring("PUBLIC_KEY:".length()).trim();
-                                                    serverPublicKey = client.crypto.CryptoUtils.loadPublicKeyFromBase64(base64Key);
-                                                    gui.updateLog("🔑 Đã nhận public key từ server!");
-                                                    gui.updateServerPublicKeyInfo(base64Key);
-                                                    return;
-                                                }
-
-                                                // Xử lý delimiter ---END---
-                                                if (line.equals("---END---")) {
-                                                    if (jsonBuffer.length() > 0) {
-                                                        processCompleteJson(jsonBuffer.toString());
-                                                        jsonBuffer.setLength(0); // Clear buffer
+                                                switch (frame.type()) {
+                                                    case PUBLIC_KEY: {
+                                                        // Xử lý public key (DER)
+                                                        byte[] der = ByteBufUtil.getBytes(frame.content());
+                                                        serverPublicKey = CryptoUtils.loadPublicKeyFromDer(der);
+                                                        gui.updateLog("🔑 Đã nhận public key từ server!");
+                                                        gui.updateServerPublicKeyInfo(Base64.getEncoder().encodeToString(der));
+                                                        // Thỏa thuận session key một lần cho kết nối này
+                                                        // và đề nghị các thuật toán nén client hỗ trợ
+                                                        SecretKey key = CryptoUtils.generateSessionKey();
+                                                        sessionKey = null;
+                                                        byte[] encryptedKey = CryptoUtils.encryptSessionKey(key, serverPublicKey);
+                                                        ByteBuf handshake = ctx.alloc().buffer(3 + encryptedKey.length + 4);
+                                                        handshake.writeShort(encryptedKey.length);
+                                                        handshake.writeBytes(encryptedKey);
+                                                        Compression.writeOffer(handshake, Compression.enabled());
+                                                        ctx.writeAndFlush(new Frame(FrameType.HANDSHAKE, handshake));
+                                                        // Từ đây FrameCipher mã hóa/giải mã mọi frame còn lại bằng key này
+                                                        ctx.channel().attr(FrameCipher.SESSION_KEY).set(key);
+                                                        gui.updateLog("🤝 Đã gửi session key (RSA) cho server, chờ xác nhận...");
+                                                        break;
                                                     }
-                                                    return;
-                                                }
-
-                                                // Tích lũy JSON data
-                                                if (line.startsWith("{")) {
-                                                    // Bắt đầu JSON mới
-                                                    jsonBuffer.setLength(0);
-                                                    jsonBuffer.append(line);
-                                                } else if (jsonBuffer.length() > 0) {
-                                                    // Tiếp tục JSON hiện tại
-                                                    jsonBuffer.append(line);
-                                                }
-
-                                                // Kiểm tra JSON hoàn chình (kết thúc bằng })
-                                                if (jsonBuffer.length() > 0 && line.endsWith("}")) {
-                                                    processCompleteJson(jsonBuffer.toString());
-                                                    jsonBuffer.setLength(0);
+                                                    case HANDSHAKE_ACK: {
+                                                        SecretKey key = ctx.channel().attr(FrameCipher.SESSION_KEY).get();
+                                                        if (key == null) {
+                                                            gui.updateLog("⚠️ Nhận HANDSHAKE_ACK khi chưa gửi handshake");
+                                                            break;
+                                                        }
+                                                        // FrameCipher đã giải mã và kiểm tra tag GCM, payload là thuật toán nén server chọn
+                                                        Compression codec = frame.content().isReadable()
+                                                                ? Compression.fromId(frame.content().readUnsignedByte()) : null;
+                                                        if (codec == null || (codec != Compression.NONE && !Compression.enabled().contains(codec))) {
+                                                            throw new Exception("Server xác nhận handshake không hợp lệ");
+                                                        }
+                                                        ctx.channel().attr(FrameCompressor.CODEC).set(codec);
+                                                        sessionKey = key;
+                                                        gui.updateLog("🤝 Đã thiết lập session key AES-" + (key.getEncoded().length * 8) + " với server, nén: " + codec);
+                                                        break;
+                                                    }
+                                                    case RESULT_CHUNK:
+                                                    case SUMMARY:
+                                                    case ERROR:
+                                                        processResponse(frame.content());
+                                                        break;
+                                                    default:
+                                                        gui.updateLog("⚠️ Bỏ qua frame không mong đợi: " + frame);
                                                 }
-
                                             } catch (Exception e) {
                                                 gui.updateLog("❌ Lỗi xử lý response: " + e.getMessage());
-                                                gui.updateLog("[DEBUG] Raw msg: " + msg);
+                                                gui.updateLog("[DEBUG] Frame: " + frame);
                                                 java.io.StringWriter sw = new java.io.StringWriter();
                                                 e.printStackTrace(new java.io.PrintWriter(sw));
                                                 gui.updateLog("[STACKTRACE] " + sw.toString());
                                             }
                                         }
 
-                                        // Phương thức xử lý JSON hoàn chỉnh
-                                        private void processCompleteJson(String jsonStr) {
+                                        // FrameCipher đã giải mã payload, đọc JSON trực tiếp từ ByteBuf
+                                        private void processResponse(ByteBuf payload) {
+                                            ObjectMapper mapper = new ObjectMapper();
                                             try {
-                                                ObjectMapper mapper = new ObjectMapper();
-                                                JsonNode node = mapper.readTree(jsonStr);
-
-                                                // Xử lý JSON mã hóa
-                                                if (node.has("encryptedKey") && node.has("encryptedData") && node.has("encryptedIv")) {
-                                                    String decryptedMsg = tryDecryptResponse(node);
-                                                    if (decryptedMsg != null) {
-                                                        gui.updateLog("🔓 Đã giải mã response từ server bằng AES+RSA!");
-                                                        try {
-                                                            client.model.MessageResponse response = mapper.readValue(decryptedMsg, client.model.MessageResponse.class);
-                                                            gui.updateScanResult(
-                                                                    response.getStatus(),
-                                                                    response.getResult(),
-                                                                    response.getFoundDomains(),
-                                                                    response.getTotalScanned(),
-                                                                    response.getTotalFound(),
-                                                                    response.getTargetDomain()
-                                                            );
-                                                        } catch (Exception e) {
-                                                            gui.updateLog("❌ Lỗi parse response (sau giải mã): " + e.getMessage());
-                                                            gui.updateLog("[DEBUG] Raw decrypted: " + decryptedMsg);
-                                                        }
+                                                client.model.MessageResponse response = mapper.readValue(
+                                                        (java.io.InputStream) new ByteBufInputStream(payload.duplicate()), client.model.MessageResponse.class);
+                                                if (response.getWordlistId() != null && response.getFoundBitmap() != null) {
+                                                    // Kết quả dạng chỉ số: ghép tên domain từ wordlist cục bộ
+                                                    int[] indexes = IndexBitmap.decode(response.getFoundBitmap());
+                                                    List<String> domains = LocalWordlists.expand(response.getWordlistId(), indexes, response.getTargetDomain());
+                                                    if (domains == null) {
+                                                        gui.updateLog("❌ Không có wordlist " + response.getWordlistId() + " để giải mã " + indexes.length + " kết quả!");
+                                                        return;
                                                     }
-                                                    return;
-                                                }
-
-                                                // Xử lý JSON thường
-                                                try {
-                                                    client.model.MessageResponse response = mapper.readValue(jsonStr, client.model.MessageResponse.class);
-                                                    gui.updateScanResult(
-                                                            response.getStatus(),
-                                                            response.getResult(),
-                                                            response.getFoundDomains(),
-                                                            response.getTotalScanned(),
-                                                            response.getTotalFound(),
-                                                            response.getTargetDomain()
-                                                    );
-                                                } catch (Exception e) {
-                                                    gui.updateLog("📨 Nhận response từ server: " + jsonStr.substring(0, Math.min(100, jsonStr.length())) + "...");
+                                                    response.setFoundDomains(domains);
                                                 }
-
+                                                gui.updateScanResult(
+                                                        response.getStatus(),
+                                                        response.getResult(),
+                                                        response.getFoundDomains(),
+                                                        response.getTotalScanned(),
+                                                        response.getTotalFound(),
+                                                        response.getTargetDomain()
+                                                );
                                             } catch (Exception e) {
-                                                gui.updateLog("❌ Lỗi parse JSON hoàn chỉnh: " + e.getMessage());
-                                                gui.updateLog("[DEBUG] Complete JSON: " + jsonStr);
-                                                java.io.StringWriter sw = new java.io.StringWriter();
-                                                e.printStackTrace(new java.io.PrintWriter(sw));
-                                                gui.updateLog("[STACKTRACE] " + sw.toString());
+                                                String raw = payload.toString(java.nio.charset.StandardCharsets.UTF_8);
+                                                gui.updateLog("❌ Lỗi parse response (sau giải mã): " + e.getMessage());
+                                                gui.updateLog("[DEBUG] Raw decrypted: " + raw.substring(0, Math.min(100, raw.length())) + "...");
                                             }
                                         }
 
@@ -188,6 +178,7 @@ public class NettyClient {
                                         @Override
                                         public void channelInactive(ChannelHandlerContext ctx) {
                                             isConnected = false;
+                                            sessionKey = null;
                                             gui.updateLog("🔌 Đã ngắt kết nối từ server");
                                             gui.updateLog("📍 Server address: " + ctx.channel().remoteAddress());
                                             gui.setConnectionStatus(false);
@@ -218,13 +209,26 @@ public class NettyClient {
         }
     }
 
+    /**
+     * Gửi một frame REQUEST, FrameCipher mã hóa payload bằng session key của kết nối.
+     */
     public void sendMessage(String msg) {
-        if (channel != null && channel.isActive() && isConnected) {
-            channel.writeAndFlush(msg);
-            gui.updateLog("📤 Đã gửi tin nhắn: " + msg);
-        } else {
+        if (channel == null || !channel.isActive() || !isConnected) {
             gui.updateLog("❌ Không thể gửi tin nhắn - chưa kết nối đến server");
+            return;
+        }
+        if (sessionKey == null) {
+            gui.updateLog("❌ Chưa hoàn tất handshake session key với server!");
+            return;
         }
+        Frame frame = Frame.of(FrameType.REQUEST, msg);
+        int length = frame.content().readableBytes();
+        channel.writeAndFlush(frame).addListener(f -> {
+            if (!f.isSuccess()) {
+                gui.updateLog("❌ Lỗi gửi tin nhắn: " + f.cause().getMessage());
+            }
+        });
+        gui.updateLog("📤 Đã gửi tin nhắn (" + length + " bytes)");
     }
 
     public void sendSecureMessage(String rawMessage, String privateKeyPath, String publicKeyPath, String targetDomain) {
@@ -234,12 +238,12 @@ public class NettyClient {
                 return;
             }
 
-            if (serverPublicKey == null) {
-                gui.updateLog("❌ Chưa nhận được public key của server, không thể mã hóa tin nhắn!");
+            if (sessionKey == null) {
+                gui.updateLog("❌ Chưa thiết lập session key với server, không thể mã hóa tin nhắn!");
                 return;
             }
 
-            gui.updateLog("🔐 Đang chuẩn bị gửi tin nhắn bảo mật (hybrid RSA+AES)...");
+            gui.updateLog("🔐 Đang chuẩn bị gửi tin nhắn bảo mật (chữ ký RSA, mã hóa bằng session key)...");
 
             // Kiểm tra file key
             if (!Files.exists(Paths.get(privateKeyPath))) {
@@ -285,32 +289,17 @@ public class NettyClient {
                     Base64.getEncoder().encodeToString(iv),
                     targetDomain
             );
+            // Báo cho server các wordlist có sẵn để nhận kết quả dạng chỉ số
+            req.wordlists = LocalWordlists.ids();
 
             ObjectMapper mapper = new ObjectMapper();
             String json = mapper.writeValueAsString(req);
 
-            // HYBRID ENCRYPTION: Mã hóa json bằng AES, mã hóa AES key/iv bằng RSA
-            gui.updateLog("🔒 Đang mã hóa toàn bộ message bằng AES...");
-            String encryptedData = CryptoUtils.encryptMessageWithAES(json, aesKey, iv);
-
-            gui.updateLog("🔒 Đang mã hóa AES key và IV bằng public key server (RSA)...");
-            String encryptedKey = CryptoUtils.encryptWithPublicKey(aesKey.getEncoded(), serverPublicKey);
-            String encryptedIv = CryptoUtils.encryptWithPublicKey(iv, serverPublicKey);
-
-            // Đóng gói payload
-            gui.updateLog("📦 Đang đóng gói payload hybrid encryption...");
-            java.util.Map<String, String> payload = new java.util.HashMap<>();
-            payload.put("encryptedKey", encryptedKey);
-            payload.put("encryptedIv", encryptedIv);
-            payload.put("encryptedData", encryptedData);
-
-            String payloadJson = mapper.writeValueAsString(payload);
+            // Gửi tin nhắn, mã hóa bằng session key đã thỏa thuận (không cần RSA cho mỗi tin nhắn)
+            gui.updateLog("📤 Đang gửi tin nhắn đến server...");
+            sendMessage(json);
 
-            // Gửi tin nhắn
-            gui.updateLog("📤 Đang gửi payload hybrid encryption đến server...");
-            sendMessage(payloadJson);
-
-            gui.updateLog("✅ Đã gửi tin nhắn bảo mật hybrid thành công!");
+            gui.updateLog("✅ Đã gửi tin nhắn bảo mật thành công!");
 
         } catch (Exception e) {
             gui.updateLog("❌ Lỗi gửi tin nhắn bảo mật: " + e.getMessage());
@@ -345,51 +334,4 @@ public class NettyClient {
     public Channel getChannel() {
         return channel;
     }
-
-    // Hàm giải mã response mã hóa
-    private String tryDecryptResponse(JsonNode node) {
-        try {
-            String privateKeyPath = gui.getPrivateKeyPath();
-            if (privateKeyPath == null || privateKeyPath.isEmpty()) {
-                gui.updateLog("❌ Không tìm thấy đường dẫn private key để giải mã!");
-                return null;
-            }
-            // Log nội dung file private key (cắt đầu/cuối)
-            try {
-                java.nio.file.Path pkPath = java.nio.file.Paths.get(privateKeyPath);
-                String pkContent = java.nio.file.Files.readString(pkPath);
-                gui.updateLog("[DEBUG] Nội dung private key (đầu): " + pkContent.substring(0, Math.min(60, pkContent.length())) + "...");
-                gui.updateLog("[DEBUG] Nội dung private key (cuối): " + pkContent.substring(Math.max(0, pkContent.length()-60)));
-            } catch (Exception e) {
-                gui.updateLog("[DEBUG] Không đọc được nội dung file private key: " + e.getMessage());
-            }
-            String b64Key = node.get("encryptedKey").asText();
-            String b64Iv = node.get("encryptedIv").asText();
-            String b64Data = node.get("encryptedData").asText();
-            gui.updateLog("[DEBUG] encryptedKey (base64, đầu): " + b64Key.substring(0, Math.min(60, b64Key.length())) + "...");
-            gui.updateLog("[DEBUG] encryptedIv (base64, đầu): " + b64Iv.substring(0, Math.min(60, b64Iv.length())) + "...");
-            gui.updateLog("[DEBUG] encryptedData (base64, đầu): " + b64Data.substring(0, Math.min(60, b64Data.length())) + "...");
-            PrivateKey privKey = client.crypto.CryptoUtils.loadPrivateKey(privateKeyPath);
-            gui.updateLog("[DEBUG] PrivateKey type: " + privKey.getAlgorithm() + ", format: " + privKey.getFormat() + ", length: " + privKey.getEncoded().length);
-            javax.crypto.Cipher rsaCipher = javax.crypto.Cipher.getInstance("RSA/ECB/PKCS1Padding");
-            rsaCipher.init(javax.crypto.Cipher.DECRYPT_MODE, privKey);
-            byte[] aesKeyBytes = rsaCipher.doFinal(java.util.Base64.getDecoder().decode(b64Key));
-            byte[] iv = rsaCipher.doFinal(java.util.Base64.getDecoder().decode(b64Iv));
-            gui.updateLog("[DEBUG] AES key length: " + aesKeyBytes.length + ", IV length: " + iv.length);
-            javax.crypto.SecretKey aesKey = new javax.crypto.spec.SecretKeySpec(aesKeyBytes, 0, aesKeyBytes.length, "AES");
-            javax.crypto.Cipher aesCipher = javax.crypto.Cipher.getInstance("AES/CBC/PKCS5Padding");
-            aesCipher.init(javax.crypto.Cipher.DECRYPT_MODE, aesKey, new javax.crypto.spec.IvParameterSpec(iv));
-            byte[] decrypted = aesCipher.doFinal(java.util.Base64.getDecoder().decode(b64Data));
-            String decryptedStr = new String(decrypted);
-            gui.updateLog("[DEBUG] Đã giải mã thành công, độ dài chuỗi: " + decryptedStr.length());
-            return decryptedStr;
-        } catch (Exception ex) {
-            gui.updateLog("❌ Lỗi giải mã response: " + ex.getMessage());
-            java.io.StringWriter sw = new java.io.StringWriter();
-            ex.printStackTrace(new java.io.PrintWriter(sw));
-            gui.updateLog("[STACKTRACE] " + sw.toString());
-            gui.updateLog("[DEBUG] Raw node: " + node.toString());
-            return null;
-        }
-    }
-} 
\ No newline at end of file
+}
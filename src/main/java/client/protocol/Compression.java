@@ -0,0 +1,59 @@
+package client.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thuật toán nén payload frame, thỏa thuận trong handshake.
+ */
+public enum Compression {
+    NONE(0),
+    DEFLATE(1),     // java.util.zip, giữ dictionary suốt kết nối - tỉ lệ nén tốt nhất
+    SNAPPY(2);      // Snappy thuần Java của Netty - nhanh, tỉ lệ thấp hơn
+
+    public static final String DEFAULT_ENABLED = "deflate,snappy";
+
+    public final int id;
+
+    Compression(int id) {
+        this.id = id;
+    }
+
+    public static Compression fromId(int id) {
+        for (Compression c : values()) {
+            if (c.id == id) return c;
+        }
+        return null;
+    }
+
+    /**
+     * Các thuật toán được bật theo thứ tự ưu tiên, đọc từ -Dprotocol.compression
+     * (ví dụ "deflate,snappy"; "none" để tắt nén).
+     */
+    public static List<Compression> enabled() {
+        List<Compression> list = new ArrayList<>();
+        for (String name : System.getProperty("protocol.compression", DEFAULT_ENABLED).split(",")) {
+            String n = name.trim().toUpperCase();
+            if (n.isEmpty() || n.equals("NONE")) continue;
+            try {
+                Compression c = valueOf(n);
+                if (!list.contains(c)) list.add(c);
+            } catch (IllegalArgumentException ignored) {
+                // Tên không hỗ trợ (zstd, lz4... cần thêm thư viện native) - bỏ qua
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Ghi danh sách thuật toán client đề nghị vào payload handshake: [số lượng 1 byte][id...].
+     */
+    public static void writeOffer(ByteBuf out, List<Compression> offered) {
+        out.writeByte(offered.size());
+        for (Compression c : offered) {
+            out.writeByte(c.id);
+        }
+    }
+}
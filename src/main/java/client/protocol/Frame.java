@@ -0,0 +1,41 @@
+package client.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Một frame của giao thức: loại frame và payload nhị phân.
+ */
+public class Frame extends DefaultByteBufHolder {
+    private final FrameType type;
+
+    public Frame(FrameType type, ByteBuf payload) {
+        super(payload);
+        this.type = type;
+    }
+
+    public static Frame of(FrameType type, byte[] payload) {
+        return new Frame(type, Unpooled.wrappedBuffer(payload));
+    }
+
+    public static Frame of(FrameType type, String payload) {
+        return of(type, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public FrameType type() {
+        return type;
+    }
+
+    @Override
+    public Frame replace(ByteBuf content) {
+        return new Frame(type, content);
+    }
+
+    @Override
+    public String toString() {
+        return "Frame(" + type + ", " + content().readableBytes() + " bytes)";
+    }
+}
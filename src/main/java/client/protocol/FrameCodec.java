@@ -0,0 +1,57 @@
+package client.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.codec.MessageToMessageCodec;
+
+import java.util.List;
+
+/**
+ * Codec frame nhị phân: [độ dài 4 byte][version 1 byte][loại 1 byte][payload].
+ * Độ dài do LengthFieldPrepender/LengthFieldBasedFrameDecoder xử lý, nên TCP có
+ * cắt hay gộp gói thì mỗi frame vẫn được tách đúng.
+ */
+public class FrameCodec extends MessageToMessageCodec<ByteBuf, Frame> {
+    public static final int VERSION = 1;
+    private static final int LENGTH_FIELD_SIZE = 4;
+    // Trần độ dài một frame: decoder chạy trước handshake, độ dài lớn hơn thì đóng kết nối ngay thay vì gom vào bộ nhớ
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * Thêm đủ bộ decoder/encoder của giao thức vào pipeline.
+     */
+    public static void addTo(ChannelPipeline pipeline) {
+        pipeline.addLast("frameDecoder", new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, LENGTH_FIELD_SIZE, 0,
+                LENGTH_FIELD_SIZE, true));
+        pipeline.addLast("framePrepender", new LengthFieldPrepender(LENGTH_FIELD_SIZE));
+        pipeline.addLast("frameCodec", new FrameCodec());
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Frame frame, List<Object> out) {
+        ByteBuf header = ctx.alloc().buffer(2);
+        header.writeByte(VERSION);
+        header.writeByte(frame.type().code);
+        CompositeByteBuf buf = ctx.alloc().compositeBuffer(2);
+        buf.addComponents(true, header, frame.content().retain());
+        out.add(buf);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        if (in.readableBytes() < 2) {
+            throw new CorruptedFrameException("Frame quá ngắn: " + in.readableBytes() + " bytes");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new CorruptedFrameException("Phiên bản giao thức không hỗ trợ: " + version);
+        }
+        FrameType type = FrameType.fromCode(in.readUnsignedByte());
+        out.add(new Frame(type, in.readRetainedSlice(in.readableBytes())));
+    }
+}
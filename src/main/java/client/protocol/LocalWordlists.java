@@ -0,0 +1,121 @@
+package client.protocol;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Các wordlist client có sẵn trên máy, đọc một lần. Client gửi mã định danh của chúng
+ * lên server; server trả kết quả dưới dạng chỉ số trong wordlist, client tự ghép lại tên domain.
+ * Cách đọc (chuẩn hóa chữ thường, bỏ tên không hợp lệ, bỏ trùng) và cách tính mã phải giống hệt
+ * server.scanner.Wordlist, nếu không chỉ số sẽ lệch.
+ */
+public final class LocalWordlists {
+    private static final int MAX_WORD_LENGTH = 200;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final String[] PATHS = {
+            "src/main/resources/subdomains-top1million-110000.txt",
+            "src/main/resources/wordlist.txt"
+    };
+    private static Map<String, List<String>> byId;
+
+    private LocalWordlists() {
+    }
+
+    /**
+     * Mã định danh của các wordlist có trên máy.
+     */
+    public static synchronized List<String> ids() {
+        return new ArrayList<>(load().keySet());
+    }
+
+    /**
+     * Ghép chỉ số thành tên domain đầy đủ, trả về null nếu không có wordlist tương ứng.
+     */
+    public static synchronized List<String> expand(String wordlistId, int[] indexes, String targetDomain) {
+        List<String> words = load().get(wordlistId);
+        if (words == null) return null;
+        List<String> domains = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            if (index < 0 || index >= words.size()) return null;
+            domains.add(words.get(index) + "." + targetDomain);
+        }
+        return domains;
+    }
+
+    private static Map<String, List<String>> load() {
+        if (byId == null) {
+            byId = new LinkedHashMap<>();
+            for (String path : PATHS) {
+                if (!Files.exists(Paths.get(path))) continue;
+                try {
+                    List<String> words = read(path);
+                    byId.put(computeId(words), words);
+                } catch (Exception e) {
+                    System.err.println("⚠️ Không đọc được wordlist " + path + ": " + e.getMessage());
+                }
+            }
+        }
+        return byId;
+    }
+
+    private static List<String> read(String path) throws IOException {
+        Set<String> words = new LinkedHashSet<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String word = line.trim();
+                if (!word.isEmpty() && !word.startsWith("#")) {
+                    String normalized = normalize(word);
+                    if (normalized != null) words.add(normalized);
+                }
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Chữ thường, null nếu không phải tên DNS hợp lệ (chỉ chữ, số, '-', '_', nhãn 1..63 ký tự ngăn bởi '.').
+     */
+    private static String normalize(String word) {
+        if (word.length() > MAX_WORD_LENGTH) return null;
+        StringBuilder sb = new StringBuilder(word.length());
+        int label = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '.') {
+                if (label == 0) return null;
+                label = 0;
+            } else {
+                if (c >= 'A' && c <= 'Z') {
+                    c = (char) (c | 0x20);
+                } else if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                    return null;
+                }
+                if (++label > MAX_LABEL_LENGTH) return null;
+            }
+            sb.append(c);
+        }
+        return label == 0 ? null : sb.toString();
+    }
+
+    private static String computeId(List<String> words) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (String word : words) {
+            digest.update(word.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+}
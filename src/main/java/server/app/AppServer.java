@@ -1,12 +1,20 @@
 package server.app;
 
 import server.gui.GuiServer;
+import server.handler.NettyServerHandler;
 import server.network.NettyServer;
+import server.scanner.ScannerConfig;
+import server.scanner.SubdomainScanner;
+import server.scanner.Wordlist;
 
 import javax.swing.*;
 
 public class AppServer {
     public static void main(String[] args) {
+        // Cấu hình scanner từ -Dscanner.* (mode, maxInFlight, deadlineMs)
+        SubdomainScanner.configure(ScannerConfig.fromSystemProperties());
+        // Nạp wordlist một lần trước khi nhận client, mọi lượt scan dùng chung
+        Wordlist.preload(NettyServerHandler.WORDLIST_PATH, NettyServerHandler.FALLBACK_WORDLIST_PATH);
         GuiServer.initLookAndFeel();
         SwingUtilities.invokeLater(() -> {
             GuiServer gui = new GuiServer();
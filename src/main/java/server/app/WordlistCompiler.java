@@ -0,0 +1,24 @@
+package server.app;
+
+import server.scanner.Wordlist;
+
+/**
+ * Biên dịch wordlist text sang dạng nhị phân để server ánh xạ thẳng vào bộ nhớ.
+ * Mặc định ghi cạnh file text (thêm đuôi .swl), server đang chạy tự dùng bản mới ở lượt scan sau.
+ *
+ * <pre>java -cp target/classes server.app.WordlistCompiler wordlist.txt [wordlist.txt.swl]</pre>
+ */
+public class WordlistCompiler {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Cách dùng: WordlistCompiler <wordlist.txt> [file đích]");
+            System.exit(1);
+        }
+        String output = args.length > 1 ? args[1] : args[0] + Wordlist.COMPILED_SUFFIX;
+        long start = System.nanoTime();
+        Wordlist wordlist = Wordlist.compile(args[0], output);
+        System.out.println("✅ Đã biên dịch " + args[0] + " -> " + output + ": " + wordlist.size() + " từ"
+                + (wordlist.skipped > 0 ? ", bỏ " + wordlist.skipped + " dòng trùng/không hợp lệ" : "")
+                + ", mã " + wordlist.id + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+    }
+}
@@ -83,6 +83,19 @@ public class CryptoUtils {
         return decryptAES(encryptedData, key, iv);
     }
 
+    /**
+     * Giải mã session key AES client gửi trong frame HANDSHAKE (RSA bằng private key server).
+     */
+    public static SecretKey decryptSessionKey(byte[] encryptedKey, PrivateKey privateKey) throws Exception {
+        Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        cipher.init(Cipher.DECRYPT_MODE, privateKey);
+        byte[] keyBytes = cipher.doFinal(encryptedKey);
+        if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+            throw new GeneralSecurityException("Độ dài session key không hợp lệ: " + keyBytes.length);
+        }
+        return new SecretKeySpec(keyBytes, "AES");
+    }
+
     /**
      * Sinh cặp khóa RSA mới.
      */
@@ -238,6 +238,23 @@ public class GuiServer extends JFrame {
         });
     }
 
+    public void clearScanDomains() {
+        updateScanDomains(new java.util.ArrayList<>());
+    }
+
+    /**
+     * Thêm các domain vừa tìm thấy vào cuối bảng (dùng khi kết quả được stream dần).
+     */
+    public void appendScanDomains(List<String> domains) {
+        SwingUtilities.invokeLater(() -> {
+            if (!(subdomainTable.getModel() instanceof DefaultTableModel)) return;
+            DefaultTableModel model = (DefaultTableModel) subdomainTable.getModel();
+            for (String domain : domains) {
+                model.addRow(new Object[]{String.valueOf(model.getRowCount() + 1), domain});
+            }
+        });
+    }
+
     public void setServerStatus(boolean isRunning) {
         SwingUtilities.invokeLater(() -> {
             if (isRunning) {
@@ -18,20 +18,29 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import server.network.NettyServer;
+import server.protocol.Compression;
+import server.protocol.Frame;
+import server.protocol.FrameCompressor;
+import server.protocol.FrameType;
+import server.protocol.IndexBitmap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import server.crypto.FrameCipher;
 import java.security.PrivateKey;
-import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
-import javax.crypto.spec.IvParameterSpec;
 
 /**
  * Xử lý message đến/đi cho Netty server, cập nhật log GUI.
  */
-public class NettyServerHandler extends SimpleChannelInboundHandler<String> {
+public class NettyServerHandler extends SimpleChannelInboundHandler<Frame> {
+    public static final String WORDLIST_PATH = "src/main/resources/subdomains-top1million-110000.txt";
+    public static final String FALLBACK_WORDLIST_PATH = "src/main/resources/wordlist.txt";
+    private static final int RESULT_BATCH_SIZE = 10; // Số domain tối đa trong một frame kết quả
+    private static final long RESULT_FLUSH_DELAY_MS = 100; // Gửi batch chưa đầy sau tối đa 100ms
+
     private final GuiServer gui;
     private final NettyServer nettyServer;
     private SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
-    private PublicKey lastClientPublicKey;
 
     public NettyServerHandler(GuiServer gui, NettyServer nettyServer) {
         this.gui = gui;
@@ -39,36 +48,53 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<String> {
     }
 
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, String msg) {
+    protected void channelRead0(ChannelHandlerContext ctx, Frame frame) {
+        switch (frame.type()) {
+            case HANDSHAKE:
+                handleHandshake(ctx, frame);
+                break;
+            case REQUEST:
+                handleRequest(ctx, frame);
+                break;
+            default:
+                gui.updateLog("⚠️ Bỏ qua frame không mong đợi: " + frame);
+        }
+    }
+
+    /**
+     * Nhận session key AES của client (mã hóa RSA bằng public key server), lưu vào attribute
+     * của channel. RSA chỉ chạy một lần cho mỗi kết nối, các frame sau do FrameCipher mã hóa AES-GCM.
+     */
+    private void handleHandshake(ChannelHandlerContext ctx, Frame frame) {
         try {
-            // Kiểm tra nếu message là hybrid encryption (JSON có encryptedKey, encryptedIv, encryptedData)
-            if (msg.trim().startsWith("{")) {
-                com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                com.fasterxml.jackson.databind.JsonNode node = mapper.readTree(msg);
-                if (node.has("encryptedKey") && node.has("encryptedIv") && node.has("encryptedData")) {
-                    gui.updateLog("🔓 Nhận payload hybrid encryption, đang giải mã bằng private key server...");
-                    String encryptedKey = node.get("encryptedKey").asText();
-                    String encryptedIv = node.get("encryptedIv").asText();
-                    String encryptedData = node.get("encryptedData").asText();
-                    java.security.PrivateKey privKey = nettyServer.getPrivateKey();
-                    if (privKey == null) throw new Exception("Server chưa có private key!");
-                    javax.crypto.Cipher rsaCipher = javax.crypto.Cipher.getInstance("RSA");
-                    rsaCipher.init(javax.crypto.Cipher.DECRYPT_MODE, privKey);
-                    byte[] aesKeyBytes = rsaCipher.doFinal(java.util.Base64.getDecoder().decode(encryptedKey));
-                    byte[] iv = rsaCipher.doFinal(java.util.Base64.getDecoder().decode(encryptedIv));
-                    javax.crypto.SecretKey aesKey = new javax.crypto.spec.SecretKeySpec(aesKeyBytes, 0, aesKeyBytes.length, "AES");
-                    javax.crypto.Cipher aesCipher = javax.crypto.Cipher.getInstance("AES/CBC/PKCS5Padding");
-                    aesCipher.init(javax.crypto.Cipher.DECRYPT_MODE, aesKey, new javax.crypto.spec.IvParameterSpec(iv));
-                    byte[] decrypted = aesCipher.doFinal(java.util.Base64.getDecoder().decode(encryptedData));
-                    msg = new String(decrypted);
-                    gui.updateLog("🔓 Đã giải mã thành công payload hybrid encryption!");
-                }
-            }
-            gui.updateLog("📨 Nhận tin nhắn từ client: " + ctx.channel().remoteAddress());
+            PrivateKey privKey = nettyServer.getPrivateKey();
+            if (privKey == null) throw new Exception("Server chưa có private key!");
+            // Payload: [độ dài 2 byte][session key mã hóa RSA][các thuật toán nén client hỗ trợ]
+            ByteBuf in = frame.content();
+            byte[] encryptedKey = new byte[in.readUnsignedShort()];
+            in.readBytes(encryptedKey);
+            SecretKey sessionKey = CryptoUtils.decryptSessionKey(encryptedKey, privKey);
+            Compression codec = Compression.select(Compression.readOffer(in));
+            ctx.channel().attr(FrameCipher.SESSION_KEY).set(sessionKey);
+            ctx.channel().attr(FrameCompressor.CODEC).set(codec);
+            // ACK (id thuật toán nén) đã được mã hóa bằng session key,
+            // client giải mã được nghĩa là server nhận đúng key
+            ctx.writeAndFlush(Frame.of(FrameType.HANDSHAKE_ACK, new byte[]{(byte) codec.id}));
+            gui.updateLog("🤝 Đã thiết lập session key AES-" + (sessionKey.getEncoded().length * 8) + " với client "
+                    + ctx.channel().remoteAddress() + ", nén: " + codec);
+        } catch (Exception e) {
+            gui.updateLog("❌ Handshake thất bại với " + ctx.channel().remoteAddress() + ": " + e.getMessage());
+            ctx.close();
+        }
+    }
 
-            // Parse JSON thành MessageRequest
+    private void handleRequest(ChannelHandlerContext ctx, Frame frame) {
+        try {
+            if (ctx.channel().attr(FrameCipher.SESSION_KEY).get() == null) throw new Exception("Client chưa handshake session key!");
+            // FrameCipher đã giải mã payload, đọc JSON trực tiếp từ ByteBuf
             ObjectMapper mapper = new ObjectMapper();
-            MessageRequest req = mapper.readValue(msg, MessageRequest.class);
+            MessageRequest req = mapper.readValue((java.io.InputStream) new ByteBufInputStream(frame.content()), MessageRequest.class);
+            gui.updateLog("📨 Nhận tin nhắn từ client: " + ctx.channel().remoteAddress());
 
             // Hiển thị thông tin chi tiết về tin nhắn
             StringBuilder details = new StringBuilder();
@@ -103,8 +129,6 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<String> {
             byte[] pubKeyBytes = CryptoUtils.decryptWithAES(encryptedPubKeyBytes, aesKey, ivBytes);
             X509EncodedKeySpec keySpec = new X509EncodedKeySpec(pubKeyBytes);
             PublicKey publicKey = KeyFactory.getInstance("RSA").generatePublic(keySpec);
-            // Luôn dùng public key này để mã hóa response
-            lastClientPublicKey = publicKey;
 
             details.append("🔐 Thông tin Public Key:\n");
             details.append("Algorithm: ").append(publicKey.getAlgorithm()).append("\n");
@@ -125,76 +149,33 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<String> {
                 details.append("- Gửi kết quả về client\n");
                 try {
                     // Lưu key/iv vào database (chỉ lưu AES key và IV, không lưu public key)
+                    // trên thread DB riêng, không giữ thread crypto chờ SQLite
                     String clientIp = ctx.channel().remoteAddress().toString();
-                    KeyIvDatabase.save(new server.model.KeyIvRecord(req.aesKey, req.aesIv, req.targetDomain, clientIp));
-                    
-                    // Kiểm tra và cleanup database nếu cần
-                    checkAndCleanupDatabase();
+                    server.model.KeyIvRecord record = new server.model.KeyIvRecord(req.aesKey, req.aesIv, req.targetDomain, clientIp);
+                    nettyServer.getDbExecutor().execute(() -> {
+                        KeyIvDatabase.save(record);
+                        // Kiểm tra và cleanup database nếu cần
+                        checkAndCleanupDatabase();
+                    });
                     
-                    // Thực hiện scan subdomain
-                    StringBuilder result = new StringBuilder();
                     // Lấy domain cần scan từ request
                     String targetDomain = req.getTargetDomain() != null && !req.getTargetDomain().isEmpty() ? req.getTargetDomain() : "huflit.edu.vn";
                     gui.updateLog("🔍 Đang scan subdomain cho domain: " + targetDomain);
-                    // Sử dụng scan DNS với domain động
-                    SubdomainScanner.ScanResult scanResult = SubdomainScanner.scanDNSWithStats("src/main/resources/subdomains-top1million-110000.txt", targetDomain);
-                    if (scanResult.totalScanned == 0) {
-                        // Fallback về wordlist cũ nếu file lớn không có
-                        gui.updateLog("[DEBUG] File subdomains-top1million-110000.txt không có hoặc không tìm thấy, fallback sang wordlist.txt");
-                        scanResult = SubdomainScanner.scanDNSWithStats("src/main/resources/wordlist.txt");
-                    }
-                    gui.updateLog("[DEBUG] Scan xong, tổng domain đã scan: " + scanResult.totalScanned + ", tìm thấy: " + scanResult.totalFound);
-                    // Tạo kết quả chi tiết
-                    for (String domain : scanResult.foundDomains) {
-                        result.append(domain).append("\n");
-                    }
-                    // Gửi kết quả chi tiết về client (CHIA NHỎ nếu quá nhiều domain)
-                    int batchSize = 10; // Giảm batch nhỏ để tránh cắt dòng
-                    List<String> allDomains = scanResult.foundDomains;
-                    int totalScanned = scanResult.totalScanned;
-                    int totalFound = scanResult.totalFound;
-                    for (int i = 0; i < allDomains.size(); i += batchSize) {
-                        List<String> batch = allDomains.subList(i, Math.min(i + batchSize, allDomains.size()));
-                        StringBuilder batchResult = new StringBuilder();
-                        for (String domain : batch) {
-                            batchResult.append(domain).append("\n");
-                        }
-                        MessageResponse resp = new MessageResponse(
-                                "OK",
-                                batchResult.toString(),
-                                batch,
-                                totalScanned,
-                                totalFound
-                        );
-                        resp.totalNotFound = scanResult.getTotalNotFound();
-                        resp.setTargetDomain(targetDomain);
-                        gui.updateLog("[DEBUG] Gửi batch: " + batch.size() + "/" + allDomains.size() + " domain");
-                        sendEncryptedResponse(ctx, resp, publicKey); // dùng publicKey vừa nhận
-                        ctx.flush();
-                    }
-                    // Nếu không có domain nào, vẫn gửi 1 response rỗng
-                    if (allDomains.isEmpty()) {
-                        MessageResponse resp = new MessageResponse(
-                                "OK",
-                                "",
-                                new java.util.ArrayList<>(),
-                                totalScanned,
-                                totalFound
-                        );
-                        resp.totalNotFound = scanResult.getTotalNotFound();
-                        resp.setTargetDomain(targetDomain);
-                        sendEncryptedResponse(ctx, resp, publicKey); // dùng publicKey vừa nhận
-                        ctx.flush();
-                    }
-                    // Hiển thị domain lên GUI
-                    gui.updateScanDomains(scanResult.foundDomains);
-                    gui.updateLog("✅ Đã xử lý thành công và gửi kết quả về client");
+                    gui.clearScanDomains();
+                    // Scan chạy bất đồng bộ, kết quả được gửi về client ngay khi tìm thấy
+                    ResultSender sender = new ResultSender(ctx, targetDomain, req.wordlists);
+                    SubdomainScanner.scanDNSAsync(WORDLIST_PATH, targetDomain, sender)
+                            .thenCompose(scanResult -> {
+                                if (scanResult.totalScanned == 0) {
+                                    // Fallback về wordlist cũ nếu file lớn không có
+                                    gui.updateLog("[DEBUG] File subdomains-top1million-110000.txt không có hoặc không tìm thấy, fallback sang wordlist.txt");
+                                    return SubdomainScanner.scanDNSAsync(FALLBACK_WORDLIST_PATH, targetDomain, sender);
+                                }
+                                return java.util.concurrent.CompletableFuture.completedFuture(scanResult);
+                            })
+                            .whenComplete(sender::finish);
                     details.append("\n📤 Kết quả gửi về:\n");
-                    details.append("Status: OK\n");
-                    details.append("Total Scanned: ").append(scanResult.totalScanned).append("\n");
-                    details.append("Total Found: ").append(scanResult.totalFound).append("\n");
-                    details.append("Total Not Found: ").append(scanResult.getTotalNotFound()).append("\n");
-                    details.append("Found Domains: ").append(scanResult.foundDomains.size()).append("\n");
+                    details.append("Status: đang scan, kết quả được gửi dần về client\n");
                 } catch (Exception scanEx) {
                     gui.updateLog("❌ Lỗi khi scan hoặc gửi domain: " + scanEx.getMessage());
                     java.io.StringWriter sw = new java.io.StringWriter();
@@ -204,7 +185,7 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<String> {
             } else {
                 // Trả về lỗi xác thực
                 MessageResponse resp = new MessageResponse("VERIFICATION_FAILED", "Chữ ký không hợp lệ");
-                sendEncryptedResponse(ctx, resp, publicKey); // dùng publicKey vừa nhận
+                sendEncryptedResponse(ctx, FrameType.ERROR, resp);
                 gui.updateLog("❌ Chữ ký không hợp lệ - từ chối tin nhắn");
                 details.append("\n❌ Kết quả:\n");
                 details.append("Status: VERIFICATION_FAILED\n");
@@ -220,18 +201,9 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<String> {
                 java.io.StringWriter sw = new java.io.StringWriter();
                 e.printStackTrace(new java.io.PrintWriter(sw));
                 gui.updateLog("[STACKTRACE] " + sw.toString());
-                ObjectMapper mapper = new ObjectMapper();
                 MessageResponse resp = new MessageResponse("VERIFICATION_FAILED", "Lỗi xử lý: " + e.getMessage());
-                // Nếu có public key client, mã hóa response
-                if (lastClientPublicKey != null) {
-                    javax.crypto.Cipher cipher = javax.crypto.Cipher.getInstance("RSA");
-                    cipher.init(javax.crypto.Cipher.ENCRYPT_MODE, lastClientPublicKey);
-                    byte[] encrypted = cipher.doFinal(mapper.writeValueAsString(resp).getBytes());
-                    String base64 = java.util.Base64.getEncoder().encodeToString(encrypted);
-                    ctx.writeAndFlush("ENCRYPTED:" + base64);
-                } else {
-                    ctx.writeAndFlush(mapper.writeValueAsString(resp));
-                }
+                // FrameCipher tự mã hóa nếu kết nối đã có session key
+                sendEncryptedResponse(ctx, FrameType.ERROR, resp);
             } catch (Exception ignored) {
             }
         }
@@ -250,8 +222,7 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<String> {
         try {
             PublicKey pubKey = nettyServer.getPublicKey();
             if (pubKey != null) {
-                String base64PubKey = java.util.Base64.getEncoder().encodeToString(pubKey.getEncoded());
-                ctx.writeAndFlush("PUBLIC_KEY:" + base64PubKey + "\n");
+                ctx.writeAndFlush(Frame.of(FrameType.PUBLIC_KEY, pubKey.getEncoded()));
                 gui.updateLog("📤 Đã gửi public key cho client");
             } else {
                 gui.updateLog("⚠️ Chưa có public key để gửi cho client!");
@@ -283,53 +254,138 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<String> {
         }
     }
 
-    private void sendEncryptedResponse(ChannelHandlerContext ctx, Object responseObj, PublicKey clientPublicKey) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        String json = mapper.writeValueAsString(responseObj);
-
-        // Sinh AES key/iv
-        KeyGenerator keyGen = KeyGenerator.getInstance("AES");
-        keyGen.init(128);
-        SecretKey aesKey = keyGen.generateKey();
-        byte[] iv = new byte[16];
-        new java.security.SecureRandom().nextBytes(iv);
-
-        // Mã hóa dữ liệu bằng AES
-        Cipher aesCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-        aesCipher.init(Cipher.ENCRYPT_MODE, aesKey, new IvParameterSpec(iv));
-        byte[] encryptedData = aesCipher.doFinal(json.getBytes());
-
-        // Mã hóa AES key/iv bằng RSA
-        Cipher rsaCipher = Cipher.getInstance("RSA");
-        rsaCipher.init(Cipher.ENCRYPT_MODE, clientPublicKey);
-        byte[] encryptedKey = rsaCipher.doFinal(aesKey.getEncoded());
-        byte[] encryptedIv = rsaCipher.doFinal(iv);
-
-        // Tạo response object
-        String b64Key = java.util.Base64.getEncoder().encodeToString(encryptedKey);
-        String b64Iv = java.util.Base64.getEncoder().encodeToString(encryptedIv);
-        String b64Data = java.util.Base64.getEncoder().encodeToString(encryptedData);
-
-        // Log chi tiết
-        gui.updateLog("[DEBUG] Gửi response: encryptedKey=" + b64Key.substring(0, Math.min(60, b64Key.length())) + "...");
-        gui.updateLog("[DEBUG] Gửi response: encryptedIv=" + b64Iv.substring(0, Math.min(60, b64Iv.length())) + "...");
-        gui.updateLog("[DEBUG] Gửi response: encryptedData=" + b64Data.substring(0, Math.min(60, b64Data.length())) + "...");
-
-        // Tạo JSON payload
-        java.util.Map<String, String> payloadMap = new java.util.HashMap<>();
-        payloadMap.put("encryptedKey", b64Key);
-        payloadMap.put("encryptedIv", b64Iv);
-        payloadMap.put("encryptedData", b64Data);
-
-        String payload = mapper.writeValueAsString(payloadMap);
-
-        // Gửi với format rõ ràng
-        String messageToSend = payload + "\n---END---\n";
-
-        gui.updateLog("[DEBUG] Độ dài payload: " + payload.length() + " chars");
-        gui.updateLog("[DEBUG] Message gửi: " + messageToSend.length() + " chars total");
-
-        ctx.write(messageToSend);
-        ctx.flush();
+    /**
+     * Stage gửi kết quả: gom subdomain tìm thấy thành batch nhỏ trên executor crypto của handler,
+     * gửi batch khi đầy hoặc sau RESULT_FLUSH_DELAY_MS, cuối cùng gửi frame tổng kết.
+     * Netty tự chuyển thao tác ghi về event loop của channel.
+     */
+    private class ResultSender implements SubdomainScanner.ScanListener {
+        private final ChannelHandlerContext ctx;
+        private final String targetDomain;
+        private final java.util.Set<String> clientWordlists;
+        private final List<String> batch = new java.util.ArrayList<>();
+        private final List<Integer> batchIndexes = new java.util.ArrayList<>();
+        private String wordlistId; // Khác null khi client có cùng wordlist: gửi chỉ số thay vì tên
+        private int sentCount = 0;
+        private boolean flushScheduled = false;
+
+        ResultSender(ChannelHandlerContext ctx, String targetDomain, List<String> clientWordlists) {
+            this.ctx = ctx;
+            this.targetDomain = targetDomain;
+            this.clientWordlists = clientWordlists != null ? new java.util.HashSet<>(clientWordlists) : java.util.Set.of();
+        }
+
+        @Override
+        public void onStart(String id, int wordlistSize) {
+            ctx.executor().execute(() -> {
+                flush(); // Kết quả của wordlist trước (nếu fallback) gửi theo cách cũ của nó
+                wordlistId = clientWordlists.contains(id) ? id : null;
+                gui.updateLog("[DEBUG] Wordlist " + id + " (" + wordlistSize + " từ), gửi kết quả dạng "
+                        + (wordlistId != null ? "chỉ số (client có cùng wordlist)" : "tên đầy đủ"));
+            });
+        }
+
+        @Override
+        public void onFound(String domain, int index) {
+            ctx.executor().execute(() -> {
+                batch.add(domain);
+                batchIndexes.add(index);
+                if (batch.size() >= RESULT_BATCH_SIZE) {
+                    flush();
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    ctx.executor().schedule(this::flush, RESULT_FLUSH_DELAY_MS, java.util.concurrent.TimeUnit.MILLISECONDS);
+                }
+            });
+        }
+
+        private void flush() {
+            flushScheduled = false;
+            if (batch.isEmpty() || !ctx.channel().isActive()) {
+                batch.clear();
+                batchIndexes.clear();
+                return;
+            }
+            List<String> domains = new java.util.ArrayList<>(batch);
+            batch.clear();
+            // Tên không có trong wordlist (hoán vị, tầng sâu của scan đệ quy) luôn gửi dạng tên đầy đủ
+            List<Integer> indexes = new java.util.ArrayList<>();
+            List<String> names = new java.util.ArrayList<>();
+            for (int i = 0; i < domains.size(); i++) {
+                if (wordlistId != null && batchIndexes.get(i) >= 0) {
+                    indexes.add(batchIndexes.get(i));
+                } else {
+                    names.add(domains.get(i));
+                }
+            }
+            batchIndexes.clear();
+            try {
+                if (!indexes.isEmpty()) {
+                    // Client tự ghép tên từ wordlist của nó, chỉ gửi bitmap chỉ số
+                    sentCount += indexes.size();
+                    MessageResponse resp = new MessageResponse("PARTIAL", "", new java.util.ArrayList<>(), 0, sentCount);
+                    resp.setWordlistId(wordlistId);
+                    resp.setFoundBitmap(IndexBitmap.encode(indexes.stream().mapToInt(Integer::intValue).toArray()));
+                    sendChunk(resp);
+                }
+                if (!names.isEmpty()) {
+                    StringBuilder batchResult = new StringBuilder();
+                    for (String domain : names) {
+                        batchResult.append(domain).append("\n");
+                    }
+                    sentCount += names.size();
+                    sendChunk(new MessageResponse("PARTIAL", batchResult.toString(), names, 0, sentCount));
+                }
+                gui.appendScanDomains(domains);
+            } catch (Exception e) {
+                gui.updateLog("❌ Lỗi gửi batch kết quả: " + e.getMessage());
+            }
+        }
+
+        private void sendChunk(MessageResponse resp) throws Exception {
+            resp.totalNotFound = 0;
+            resp.setTargetDomain(targetDomain);
+            sendEncryptedResponse(ctx, FrameType.RESULT_CHUNK, resp);
+        }
+
+        void finish(SubdomainScanner.ScanResult scanResult, Throwable error) {
+            ctx.executor().execute(() -> {
+                flush();
+                try {
+                    if (error != null) {
+                        gui.updateLog("❌ Lỗi khi scan: " + error.getMessage());
+                        sendEncryptedResponse(ctx, FrameType.ERROR, new MessageResponse("ERROR", "Lỗi scan: " + error.getMessage()));
+                        return;
+                    }
+                    String summary = "Scan hoàn thành: " + scanResult.totalFound + "/" + scanResult.totalScanned
+                            + (scanResult.deadlineReached ? " (hết hạn scan, " + scanResult.totalUnresolved + " chưa có kết quả)" : "")
+                            + (scanResult.totalWildcard > 0 ? " (lọc " + scanResult.totalWildcard + " kết quả wildcard)" : "");
+                    MessageResponse resp = new MessageResponse("OK", summary, new java.util.ArrayList<>(),
+                            scanResult.totalScanned, scanResult.totalFound);
+                    resp.totalNotFound = scanResult.getTotalNotFound();
+                    resp.setTargetDomain(targetDomain);
+                    sendEncryptedResponse(ctx, FrameType.SUMMARY, resp);
+                    gui.updateLog("[DEBUG] Scan xong, tổng domain đã scan: " + scanResult.totalScanned + ", tìm thấy: " + scanResult.totalFound);
+                    gui.updateLog("✅ Đã xử lý thành công và gửi kết quả về client");
+                } catch (Exception e) {
+                    gui.updateLog("❌ Lỗi gửi tổng kết scan: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Ghi response JSON thẳng vào ByteBuf pooled; FrameCipher mã hóa AES-GCM trên đường ra.
+     */
+    private void sendEncryptedResponse(ChannelHandlerContext ctx, FrameType type, Object responseObj) throws Exception {
+        ByteBuf payload = ctx.alloc().buffer();
+        try {
+            new ObjectMapper().writeValue((java.io.OutputStream) new ByteBufOutputStream(payload), responseObj);
+        } catch (Exception e) {
+            payload.release();
+            throw e;
+        }
+        gui.updateLog("[DEBUG] Gửi frame " + type + ", độ dài payload: " + payload.readableBytes() + " bytes");
+        ctx.writeAndFlush(new Frame(type, payload));
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package server.model;
 
+import java.util.List;
+
 /**
  * Đối tượng nhận từ client gửi lên server.
  * Chứa raw message, chữ ký, public key mã hóa AES, key và IV AES.
@@ -11,6 +13,7 @@ public class MessageRequest {
     public String aesKey;
     public String aesIv;
     public String targetDomain;
+    public List<String> wordlists; // Mã các wordlist client có sẵn (nhận kết quả dạng chỉ số)
 
     // Constructor mặc định cho Jackson
     public MessageRequest() {
@@ -68,4 +71,7 @@ public class MessageRequest {
 
     public String getTargetDomain() { return targetDomain; }
     public void setTargetDomain(String targetDomain) { this.targetDomain = targetDomain; }
+
+    public List<String> getWordlists() { return wordlists; }
+    public void setWordlists(List<String> wordlists) { this.wordlists = wordlists; }
 } 
\ No newline at end of file
@@ -30,6 +30,12 @@ public class MessageResponse {
     @JsonProperty("targetDomain")
     public String targetDomain;
 
+    @JsonProperty("wordlistId")
+    public String wordlistId; // Có giá trị khi kết quả gửi dạng chỉ số trong wordlist
+
+    @JsonProperty("foundBitmap")
+    public byte[] foundBitmap; // IndexBitmap các chỉ số tìm thấy (Base64 trong JSON)
+
     // Constructor mặc định cho Jackson
     public MessageResponse() {
         this.status = "";
@@ -66,6 +72,8 @@ public class MessageResponse {
     public int getTotalFound() { return totalFound; }
     public int getTotalNotFound() { return totalNotFound; }
     public String getTargetDomain() { return targetDomain; }
+    public String getWordlistId() { return wordlistId; }
+    public byte[] getFoundBitmap() { return foundBitmap; }
 
     // Setter methods
     public void setStatus(String status) { this.status = status; }
@@ -75,4 +83,6 @@ public class MessageResponse {
     public void setTotalFound(int totalFound) { this.totalFound = totalFound; }
     public void setTotalNotFound(int totalNotFound) { this.totalNotFound = totalNotFound; }
     public void setTargetDomain(String targetDomain) { this.targetDomain = targetDomain; }
+    public void setWordlistId(String wordlistId) { this.wordlistId = wordlistId; }
+    public void setFoundBitmap(byte[] foundBitmap) { this.foundBitmap = foundBitmap; }
 } 
\ No newline at end of file
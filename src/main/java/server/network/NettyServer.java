@@ -4,9 +4,15 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
 import server.handler.NettyServerHandler;
+import server.protocol.FrameCodec;
+import server.protocol.FrameCompressor;
+import server.crypto.FrameCipher;
 import server.gui.GuiServer;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.security.*;
@@ -21,6 +27,10 @@ public class NettyServer {
     private Channel channel;
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
+    // Giải mã RSA/AES, xác thực chữ ký, mã hóa kết quả: chạy ngoài event loop I/O
+    private EventExecutorGroup cryptoGroup;
+    // Ghi SQLite (key/iv) tuần tự trên một thread riêng
+    private EventExecutor dbExecutor;
     private AtomicInteger connectionCount = new AtomicInteger(0);
     private boolean isRunning = false;
 
@@ -68,18 +78,24 @@ public class NettyServer {
         return publicKey;
     }
 
+    public EventExecutor getDbExecutor() {
+        return dbExecutor;
+    }
+
     public void start(int port) {
         gui.updateLog("🚀 Đang khởi động server tại cổng " + port + "...");
 
         bossGroup = new NioEventLoopGroup(1);
         workerGroup = new NioEventLoopGroup();
+        cryptoGroup = new DefaultEventExecutorGroup(Runtime.getRuntime().availableProcessors(), new DefaultThreadFactory("server-crypto"));
+        dbExecutor = new DefaultEventExecutor(new DefaultThreadFactory("server-keyiv-db"));
         try {
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
              .channel(NioServerSocketChannel.class)
              .childHandler(new ChannelInitializer<Channel>() {
                  @Override
-                 protected void initChannel(Channel ch) {
+                 protected void initChannel(Channel ch) throws Exception {
                      gui.updateLog("🔧 Thiết lập pipeline cho kết nối mới: " + ch.remoteAddress());
 
                      // Theo dõi kết nối trước
@@ -110,8 +126,13 @@ public class NettyServer {
                          }
                      });
 
-                     // Sau đó thêm encoder/decoder và handler chính
-                     ch.pipeline().addLast(new StringEncoder(), new StringDecoder(), new server.handler.NettyServerHandler(gui, NettyServer.this));
+                     // Sau đó thêm codec frame nhị phân, handler chính chạy trên cryptoGroup
+                     // để giải mã/ký không chặn event loop dùng chung với các client khác
+                     FrameCodec.addTo(ch.pipeline());
+                     // Mã hóa AES-GCM và nén cùng executor với handler để giữ thứ tự handshake
+                     ch.pipeline().addLast(cryptoGroup, "frameCipher", new FrameCipher());
+                     ch.pipeline().addLast(cryptoGroup, "frameCompressor", new FrameCompressor());
+                     ch.pipeline().addLast(cryptoGroup, "serverHandler", new server.handler.NettyServerHandler(gui, NettyServer.this));
 
                      gui.updateLog("✅ Pipeline đã được thiết lập cho kết nối mới");
                  }
@@ -140,6 +161,8 @@ public class NettyServer {
         gui.setServerStatus(false);
         if (bossGroup != null) bossGroup.shutdownGracefully();
         if (workerGroup != null) workerGroup.shutdownGracefully();
+        if (cryptoGroup != null) cryptoGroup.shutdownGracefully();
+        if (dbExecutor != null) dbExecutor.shutdownGracefully();
         gui.updateLog("🛑 Server đã dừng");
     }
 
@@ -0,0 +1,74 @@
+package server.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thuật toán nén payload frame, thỏa thuận trong handshake.
+ */
+public enum Compression {
+    NONE(0),
+    DEFLATE(1),     // java.util.zip, giữ dictionary suốt kết nối - tỉ lệ nén tốt nhất
+    SNAPPY(2);      // Snappy thuần Java của Netty - nhanh, tỉ lệ thấp hơn
+
+    public static final String DEFAULT_ENABLED = "deflate,snappy";
+
+    public final int id;
+
+    Compression(int id) {
+        this.id = id;
+    }
+
+    public static Compression fromId(int id) {
+        for (Compression c : values()) {
+            if (c.id == id) return c;
+        }
+        return null;
+    }
+
+    /**
+     * Các thuật toán được bật theo thứ tự ưu tiên, đọc từ -Dprotocol.compression
+     * (ví dụ "deflate,snappy"; "none" để tắt nén).
+     */
+    public static List<Compression> enabled() {
+        List<Compression> list = new ArrayList<>();
+        for (String name : System.getProperty("protocol.compression", DEFAULT_ENABLED).split(",")) {
+            String n = name.trim().toUpperCase();
+            if (n.isEmpty() || n.equals("NONE")) continue;
+            try {
+                Compression c = valueOf(n);
+                if (!list.contains(c)) list.add(c);
+            } catch (IllegalArgumentException ignored) {
+                // Tên không hỗ trợ (zstd, lz4... cần thêm thư viện native) - bỏ qua
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Đọc danh sách thuật toán client đề nghị: [số lượng 1 byte][id...]. Id lạ bị bỏ qua.
+     */
+    public static List<Compression> readOffer(ByteBuf in) {
+        List<Compression> offered = new ArrayList<>();
+        if (!in.isReadable()) return offered;
+        int count = in.readUnsignedByte();
+        for (int i = 0; i < count && in.isReadable(); i++) {
+            Compression c = fromId(in.readUnsignedByte());
+            if (c != null && c != NONE) offered.add(c);
+        }
+        return offered;
+    }
+
+    /**
+     * Chọn thuật toán đầu tiên client đề nghị mà server cũng bật, không có thì NONE.
+     */
+    public static Compression select(List<Compression> offered) {
+        List<Compression> enabled = enabled();
+        for (Compression c : offered) {
+            if (enabled.contains(c)) return c;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,157 @@
+package server.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.handler.codec.compression.Snappy;
+import io.netty.util.AttributeKey;
+
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stage nén frame dữ liệu (REQUEST, RESULT_CHUNK, SUMMARY, ERROR). Nằm giữa FrameCipher
+ * và handler nên nén trước khi mã hóa, giải nén sau khi giải mã.
+ * Payload: [id thuật toán 1 byte][dữ liệu]. Deflate giữ dictionary suốt kết nối (SYNC_FLUSH),
+ * hậu tố ".targetDomain" và tên field JSON lặp lại giữa các batch chỉ tốn vài byte.
+ * Thuật toán dùng khi gửi do handshake chọn, lưu ở attribute CODEC.
+ */
+public class FrameCompressor extends MessageToMessageCodec<Frame, Frame> {
+    public static final AttributeKey<Compression> CODEC = AttributeKey.valueOf("compression");
+    private static final int MIN_COMPRESS_SIZE = 64;                // Payload nhỏ hơn thì gửi nguyên
+    private static final int SNAPPY_BLOCK_SIZE = 32 * 1024;         // Snappy của Netty chỉ nén đúng block <= 32KB
+    private static final int MAX_DECOMPRESSED_SIZE = 64 * 1024 * 1024;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final Inflater inflater = new Inflater();
+    private final Snappy snappy = new Snappy();
+
+    private static boolean isData(FrameType type) {
+        return type == FrameType.REQUEST || type == FrameType.RESULT_CHUNK
+                || type == FrameType.SUMMARY || type == FrameType.ERROR;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Frame frame, List<Object> out) throws Exception {
+        if (!isData(frame.type())) {
+            out.add(frame.retain());
+            return;
+        }
+        ByteBuf in = frame.content();
+        Compression codec = ctx.channel().attr(CODEC).get();
+        if (codec == null || in.readableBytes() < MIN_COMPRESS_SIZE) {
+            codec = Compression.NONE;
+        }
+        if (codec == Compression.NONE) {
+            ByteBuf header = ctx.alloc().buffer(1).writeByte(Compression.NONE.id);
+            CompositeByteBuf buf = ctx.alloc().compositeBuffer(2);
+            buf.addComponents(true, header, in.retain());
+            out.add(new Frame(frame.type(), buf));
+            return;
+        }
+        ByteBuf compressed = ctx.alloc().directBuffer(in.readableBytes() / 2 + 16);
+        try {
+            compressed.writeByte(codec.id);
+            if (codec == Compression.DEFLATE) {
+                deflate(in, compressed);
+            } else {
+                snappyEncode(in, compressed);
+            }
+        } catch (Exception e) {
+            compressed.release();
+            throw e;
+        }
+        out.add(new Frame(frame.type(), compressed));
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, Frame frame, List<Object> out) throws Exception {
+        if (!isData(frame.type())) {
+            out.add(frame.retain());
+            return;
+        }
+        ByteBuf in = frame.content();
+        if (!in.isReadable()) {
+            throw new CorruptedFrameException("Frame dữ liệu thiếu header nén");
+        }
+        Compression codec = Compression.fromId(in.readUnsignedByte());
+        if (codec == null) {
+            throw new CorruptedFrameException("Thuật toán nén không hỗ trợ");
+        }
+        if (codec == Compression.NONE) {
+            out.add(new Frame(frame.type(), in.retainedSlice()));
+            return;
+        }
+        ByteBuf plain = ctx.alloc().directBuffer(Math.min(in.readableBytes() * 4, MAX_DECOMPRESSED_SIZE), MAX_DECOMPRESSED_SIZE);
+        try {
+            if (codec == Compression.DEFLATE) {
+                inflate(in, plain);
+            } else {
+                snappyDecode(in, plain);
+            }
+        } catch (Exception e) {
+            plain.release();
+            throw e;
+        }
+        out.add(new Frame(frame.type(), plain));
+    }
+
+    private void deflate(ByteBuf in, ByteBuf out) {
+        deflater.setInput(in.nioBuffer());
+        while (true) {
+            out.ensureWritable(Math.max(256, in.readableBytes() / 4));
+            int writable = out.writableBytes();
+            int n = deflater.deflate(out.nioBuffer(out.writerIndex(), writable), Deflater.SYNC_FLUSH);
+            out.writerIndex(out.writerIndex() + n);
+            // SYNC_FLUSH xong khi output không lấp đầy vùng trống
+            if (n < writable) break;
+        }
+    }
+
+    private void inflate(ByteBuf in, ByteBuf out) throws Exception {
+        inflater.setInput(in.nioBuffer());
+        while (true) {
+            out.ensureWritable(Math.max(256, in.readableBytes() * 2));
+            int writable = out.writableBytes();
+            int n = inflater.inflate(out.nioBuffer(out.writerIndex(), writable));
+            out.writerIndex(out.writerIndex() + n);
+            if (n < writable && inflater.needsInput()) break;
+            if (n == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                throw new CorruptedFrameException("Dữ liệu Deflate không hợp lệ");
+            }
+        }
+    }
+
+    private void snappyEncode(ByteBuf in, ByteBuf out) {
+        // Mỗi block: [độ dài 4 byte][block Snappy]
+        while (in.isReadable()) {
+            int length = Math.min(SNAPPY_BLOCK_SIZE, in.readableBytes());
+            int lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            snappy.encode(in.readSlice(length), out, length);
+            snappy.reset();
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+        }
+    }
+
+    private void snappyDecode(ByteBuf in, ByteBuf out) {
+        while (in.isReadable()) {
+            int length = in.readInt();
+            if (length < 0 || length > in.readableBytes()) {
+                throw new CorruptedFrameException("Block Snappy sai độ dài: " + length);
+            }
+            snappy.decode(in.readSlice(length), out);
+            snappy.reset();
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        deflater.end();
+        inflater.end();
+        super.handlerRemoved(ctx);
+    }
+}
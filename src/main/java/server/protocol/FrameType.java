@@ -0,0 +1,27 @@
+package server.protocol;
+
+/**
+ * Loại frame trong giao thức nhị phân client/server.
+ */
+public enum FrameType {
+    PUBLIC_KEY(1),      // Server -> client: public key RSA (DER)
+    REQUEST(2),         // Client -> server: yêu cầu scan đã mã hóa
+    RESULT_CHUNK(3),    // Server -> client: một batch subdomain tìm thấy
+    SUMMARY(4),         // Server -> client: tổng kết lượt scan
+    ERROR(5),           // Server -> client: lỗi xử lý / xác thực
+    HANDSHAKE(6),       // Client -> server: session key AES mã hóa bằng public key RSA của server
+    HANDSHAKE_ACK(7);   // Server -> client: xác nhận session key (mã hóa bằng chính session key)
+
+    public final int code;
+
+    FrameType(int code) {
+        this.code = code;
+    }
+
+    public static FrameType fromCode(int code) {
+        for (FrameType type : values()) {
+            if (type.code == code) return type;
+        }
+        throw new IllegalArgumentException("Loại frame không hợp lệ: " + code);
+    }
+}
@@ -0,0 +1,105 @@
+package server.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Mã hóa tập chỉ số (vị trí trong wordlist) theo kiểu Roaring: chia theo 16 bit cao,
+ * mỗi nhóm là mảng uint16 đã sắp xếp (thưa) hoặc bitmap 65536 bit (dày).
+ * Định dạng: [số nhóm u16] rồi mỗi nhóm [key u16][loại u8][số phần tử - 1 u16][dữ liệu].
+ */
+public final class IndexBitmap {
+    private static final int ARRAY_CONTAINER = 0;
+    private static final int BITMAP_CONTAINER = 1;
+    private static final int ARRAY_MAX = 4096;      // Trên ngưỡng này bitmap 8KB gọn hơn mảng uint16
+    private static final int BITMAP_WORDS = 1024;   // 65536 bit
+
+    private IndexBitmap() {
+    }
+
+    public static byte[] encode(int[] indexes) {
+        int[] sorted = Arrays.stream(indexes).filter(i -> i >= 0).distinct().sorted().toArray();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + sorted.length * 2);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int containers = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || (sorted[i] >>> 16) != (sorted[i - 1] >>> 16)) containers++;
+            }
+            out.writeShort(containers);
+            int start = 0;
+            while (start < sorted.length) {
+                int key = sorted[start] >>> 16;
+                int end = start;
+                while (end < sorted.length && (sorted[end] >>> 16) == key) end++;
+                int cardinality = end - start;
+                out.writeShort(key);
+                if (cardinality <= ARRAY_MAX) {
+                    out.writeByte(ARRAY_CONTAINER);
+                    out.writeShort(cardinality - 1);
+                    for (int i = start; i < end; i++) {
+                        out.writeShort(sorted[i] & 0xFFFF);
+                    }
+                } else {
+                    out.writeByte(BITMAP_CONTAINER);
+                    out.writeShort(cardinality - 1);
+                    long[] words = new long[BITMAP_WORDS];
+                    for (int i = start; i < end; i++) {
+                        int low = sorted[i] & 0xFFFF;
+                        words[low >>> 6] |= 1L << low;
+                    }
+                    for (long word : words) {
+                        out.writeLong(word);
+                    }
+                }
+                start = end;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static int[] decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int containers = in.readUnsignedShort();
+        int[][] parts = new int[containers][];
+        int total = 0;
+        for (int c = 0; c < containers; c++) {
+            int high = in.readUnsignedShort() << 16;
+            int type = in.readUnsignedByte();
+            int cardinality = in.readUnsignedShort() + 1;
+            int[] values = new int[cardinality];
+            if (type == ARRAY_CONTAINER) {
+                for (int i = 0; i < cardinality; i++) {
+                    values[i] = high | in.readUnsignedShort();
+                }
+            } else if (type == BITMAP_CONTAINER) {
+                int n = 0;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = in.readLong();
+                    while (word != 0 && n < cardinality) {
+                        values[n++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+                if (n != cardinality) throw new IOException("Bitmap sai số phần tử: " + n + "/" + cardinality);
+            } else {
+                throw new IOException("Loại container không hợp lệ: " + type);
+            }
+            parts[c] = values;
+            total += cardinality;
+        }
+        int[] result = new int[total];
+        int pos = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, result, pos, part.length);
+            pos += part.length;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,255 @@
+package server.scanner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Giới hạn số truy vấn DNS đang chờ theo kiểu AIMD (như điều khiển tắc nghẽn TCP):
+ * tăng dần khi resolver trả lời nhanh và không mất gói, giảm theo tỉ lệ khi tỉ lệ timeout
+ * vượt ngưỡng (mất gói lẻ tẻ đã có gửi lại bù, không phải tắc nghẽn) hoặc RTT trượt vượt xa
+ * RTT nền lúc không tải (hàng đợi ở resolver đang dài ra, kiểu Vegas / gradient của Netflix
+ * concurrency-limits). RTT nền tính riêng cho từng resolver để resolver chậm trong nhóm không
+ * bị hiểu nhầm là tắc nghẽn. Dùng chung cho mọi lượt scan trong tiến trình.
+ */
+public class AdaptiveLimiter {
+    private static final double BACKOFF_RATIO = 0.9;       // Giảm 10% mỗi lần tắc nghẽn
+    private static final double LATENCY_TOLERANCE = 2.0;   // RTT trượt > 2 x RTT nền coi như tắc nghẽn
+    private static final double RTT_ALPHA = 0.05;
+    private static final long MIN_QUEUE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1); // Bỏ qua dao động dưới 1ms
+    private static final long BASELINE_RESET_NANOS = TimeUnit.SECONDS.toNanos(10); // Đo lại RTT nền định kỳ
+    private static final double LOSS_ALPHA = 0.002;
+    private static final double LOSS_TOLERANCE = 0.1;      // Tỉ lệ timeout trượt trên 10% coi như tắc nghẽn
+    private static final int WARMUP_SAMPLES = 100;         // Chưa so RTT khi còn ít mẫu
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private boolean slowStart = true;   // Nhân đôi mỗi RTT cho tới lần tắc nghẽn đầu tiên
+    private long lastDecreaseNanos;
+    private double smoothedRttNanos;    // RTT trượt chung (hiển thị, nhịp giảm giới hạn)
+    private final Map<Object, PathRtt> paths = new HashMap<>();
+    private double lossRate;
+    private long dropped;
+    private long completed;
+
+    /**
+     * RTT trượt và RTT nền của một resolver.
+     */
+    private static final class PathRtt {
+        double smoothedNanos;
+        double baselineNanos;   // RTT trượt nhỏ nhất trong chu kỳ hiện tại
+        long baselineSinceNanos;
+        long samples;
+    }
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(initialLimit, this.maxLimit));
+    }
+
+    /**
+     * Chờ tới khi số truy vấn đang chờ nhỏ hơn giới hạn hiện tại, false nếu hết thời gian.
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) return false;
+                remaining = available.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lấy một suất nếu còn, không chờ.
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) return false;
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Truy vấn có trả lời sau rttNanos (RTT của lần gửi được trả lời). rttNanos <= 0 khi không
+     * có mẫu tin cậy (truy vấn đã gửi lại, như thuật toán Karn).
+     */
+    public void onSuccess(long rttNanos) {
+        onSuccess(null, rttNanos, 0);
+    }
+
+    /**
+     * Truy vấn có trả lời từ resolver source (null nếu không rõ), sau khi đã gửi lại
+     * retransmits lần (mỗi lần là một gói mất).
+     */
+    public void onSuccess(Object source, long rttNanos, int retransmits) {
+        lock.lock();
+        try {
+            inFlight--;
+            completed++;
+            for (int i = 0; i < retransmits; i++) {
+                recordLoss(System.nanoTime());
+            }
+            lossRate = lossRate * (1 - LOSS_ALPHA);
+            long now = System.nanoTime();
+            if (rttNanos <= 0) {
+                available.signal();
+                return;
+            }
+            smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos : smoothedRttNanos + RTT_ALPHA * (rttNanos - smoothedRttNanos);
+            PathRtt path = paths.computeIfAbsent(source, k -> new PathRtt());
+            path.samples++;
+            path.smoothedNanos = path.smoothedNanos == 0 ? rttNanos : path.smoothedNanos + RTT_ALPHA * (rttNanos - path.smoothedNanos);
+            if (path.baselineNanos == 0 || now - path.baselineSinceNanos > BASELINE_RESET_NANOS) {
+                path.baselineNanos = path.smoothedNanos;
+                path.baselineSinceNanos = now;
+            } else {
+                path.baselineNanos = Math.min(path.baselineNanos, path.smoothedNanos);
+            }
+            if (path.samples > WARMUP_SAMPLES && path.smoothedNanos > LATENCY_TOLERANCE * path.baselineNanos
+                    && path.smoothedNanos - path.baselineNanos > MIN_QUEUE_DELAY_NANOS) {
+                decrease(now); // Hàng đợi ở resolver đang dài ra
+            } else if (inFlight >= limit / 2) {
+                // Chỉ tăng khi thực sự dùng tới giới hạn; sau slow start tăng khoảng sqrt(limit) mỗi RTT
+                limit = Math.min(maxLimit, limit + (slowStart ? 1 : Math.sqrt(limit) / limit));
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Truy vấn timeout (coi như mất gói).
+     */
+    public void onDropped() {
+        lock.lock();
+        try {
+            inFlight--;
+            recordLoss(System.nanoTime());
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordLoss(long now) {
+        dropped++;
+        lossRate = lossRate * (1 - LOSS_ALPHA) + LOSS_ALPHA;
+        if (lossRate > LOSS_TOLERANCE) {
+            decrease(now);
+        }
+    }
+
+    /**
+     * Trả suất mà không tính vào thống kê (truy vấn bị huỷ, lỗi cục bộ...).
+     */
+    public void onIgnore() {
+        lock.lock();
+        try {
+            inFlight--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Giảm theo tỉ lệ, tối đa một lần mỗi RTT để một đợt mất gói không kéo giới hạn về đáy.
+     */
+    private void decrease(long now) {
+        slowStart = false;
+        long interval = (long) Math.max(smoothedRttNanos, TimeUnit.MILLISECONDS.toNanos(1));
+        if (now - lastDecreaseNanos < interval) return;
+        lastDecreaseNanos = now;
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * RTT trung bình trượt (ms).
+     */
+    public double getRttMs() {
+        lock.lock();
+        try {
+            return smoothedRttNanos / 1_000_000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tỉ lệ timeout trung bình trượt (0..1).
+     */
+    public double getLossRate() {
+        lock.lock();
+        try {
+            return lossRate;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCompleted() {
+        lock.lock();
+        try {
+            return completed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("limit=%d, inFlight=%d, rtt=%.1fms, loss=%.2f%%",
+                    (int) limit, inFlight, smoothedRttNanos / 1_000_000.0, lossRate * 100);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
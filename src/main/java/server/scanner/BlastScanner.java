@@ -0,0 +1,657 @@
+package server.scanner;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Chế độ scan tốc độ cao kiểu massdns: vài socket UDP (java.nio) gửi truy vấn dựng từ
+ * template đã mã hóa sẵn, mỗi truy vấn chỉ ghi lại transaction ID và nhãn subdomain.
+ * Bảng truy vấn đang chờ là mảng int đánh chỉ số trực tiếp theo (socket, transaction ID),
+ * response được đọc thẳng từ buffer datagram, không tạo object cho các tên không tồn tại.
+ * Một thread gửi (thread gọi scan) và một thread nhận cho mỗi socket.
+ */
+public class BlastScanner {
+    private static final int ID_SPACE = 65536;
+    private static final int EMPTY = -1;
+    private static final int HEADER_SIZE = 12;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int RECEIVE_BUFFER_SIZE = 4096;
+    private static final int SOCKET_BUFFER_SIZE = 8 * 1024 * 1024;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final List<InetSocketAddress> resolvers;
+    private final int socketCount;
+    private final int window;
+    private final RttEstimator[] rtt;  // Mỗi socket một bộ ước lượng (socket gắn với một resolver)
+    private final int maxRetries;
+    private final DnsCache cache;
+    private final AdaptiveLimiter limiter;
+    private TokenBucket[] resolverRates;   // Theo chỉ số resolver, phần tử null = không giới hạn
+    private TokenBucket[] sharedRates = new TokenBucket[0]; // Giới hạn chung (toàn server, domain đích)
+    private WildcardFilter wildcard;
+
+    /**
+     * @param resolvers  DNS server nhận truy vấn, socket thứ i gửi tới resolver i % số resolver
+     * @param socketCount số socket UDP (mỗi socket có 65536 transaction ID)
+     * @param window     trần số truy vấn đang chờ của lượt scan (giới hạn bởi không gian transaction ID)
+     * @param timeoutMs  trần timeout một lần gửi; timeout thực tế tính từ RTT ước lượng, nhân đôi mỗi lần gửi lại
+     * @param maxRetries số lần gửi lại khi timeout
+     * @param cache      cache câu trả lời dùng chung, null nếu tắt
+     * @param limiter    giới hạn thích ứng dùng chung, quyết định số truy vấn thực sự được gửi
+     */
+    public BlastScanner(List<InetSocketAddress> resolvers, int socketCount, int window, long timeoutMs, int maxRetries,
+                        DnsCache cache, AdaptiveLimiter limiter) {
+        if (resolvers.isEmpty()) throw new IllegalArgumentException("Cần ít nhất một resolver");
+        this.resolvers = new ArrayList<>(resolvers);
+        this.socketCount = Math.max(1, socketCount);
+        this.window = Math.max(1, Math.min(window, this.socketCount * (ID_SPACE - 1)));
+        this.rtt = new RttEstimator[this.socketCount];
+        for (int i = 0; i < this.socketCount; i++) {
+            rtt[i] = RttEstimator.forDns(timeoutMs);
+        }
+        this.maxRetries = maxRetries;
+        this.cache = cache;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Giới hạn truy vấn/giây theo resolver và các giới hạn chung áp cho mọi truy vấn (bucket null được bỏ qua).
+     */
+    public void setRateLimits(Function<InetSocketAddress, TokenBucket> perResolver, TokenBucket... shared) {
+        resolverRates = new TokenBucket[resolvers.size()];
+        for (int i = 0; i < resolvers.size(); i++) {
+            resolverRates[i] = perResolver.apply(resolvers.get(i));
+        }
+        sharedRates = shared;
+    }
+
+    /**
+     * Lọc câu trả lời của bản ghi wildcard (null = không lọc).
+     */
+    public void setWildcardFilter(WildcardFilter wildcard) {
+        this.wildcard = wildcard;
+    }
+
+    /**
+     * Scan tất cả subdomain của targetDomain trong danh sách, trả về khi xong hoặc tới hạn chót (System.nanoTime).
+     * Có listener thì subdomain tìm thấy được đẩy ngay cho listener thay vì gom vào foundDomains.
+     */
+    public SubdomainScanner.ScanResult scan(Wordlist wordlist, String targetDomain, long deadlineNanos,
+                                            SubdomainScanner.ScanListener listener) throws IOException {
+        Run run = new Run(wordlist, targetDomain, listener);
+        try {
+            run.open();
+            return run.execute(deadlineNanos);
+        } finally {
+            run.close();
+        }
+    }
+
+    /**
+     * Trạng thái của một lượt scan.
+     */
+    private final class Run {
+        final Wordlist words;
+        final String targetDomain;
+        final SubdomainScanner.ScanListener listener;
+        final byte[] suffix;                     // Nhãn của target + 0 + QTYPE A + QCLASS IN
+        final DatagramChannel[] channels = new DatagramChannel[socketCount];
+        final ByteBuffer[] sendBuffers = new ByteBuffer[socketCount];
+        final AtomicIntegerArray[] slots = new AtomicIntegerArray[socketCount]; // transaction ID -> chỉ số từ
+        final long[][] sentAt = new long[socketCount][ID_SPACE];
+        final int[] nextId = new int[socketCount];
+        final byte[] attempts;
+        final Thread[] receivers = new Thread[socketCount];
+        final IntRing retries;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger foundCount = new AtomicInteger();
+        final AtomicInteger unresolved = new AtomicInteger();
+        final AtomicInteger wildcardHits = new AtomicInteger();
+        final Queue<String> found = new ConcurrentLinkedQueue<>();
+        volatile boolean running = true;
+        int nextSocket;
+
+        Run(Wordlist words, String targetDomain, SubdomainScanner.ScanListener listener) {
+            this.words = words;
+            this.targetDomain = targetDomain;
+            this.listener = listener;
+            this.suffix = encodeSuffix(targetDomain);
+            this.attempts = new byte[words.size()];
+            this.retries = new IntRing(window);
+        }
+
+        void open() throws IOException {
+            for (int s = 0; s < socketCount; s++) {
+                DatagramChannel ch = DatagramChannel.open();
+                channels[s] = ch;
+                ch.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+                ch.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_SIZE);
+                ch.connect(resolvers.get(s % resolvers.size()));
+                sendBuffers[s] = ByteBuffer.allocateDirect(HEADER_SIZE + MAX_NAME_LENGTH + 4);
+                slots[s] = new AtomicIntegerArray(ID_SPACE);
+                for (int id = 0; id < ID_SPACE; id++) {
+                    slots[s].set(id, EMPTY);
+                }
+                nextId[s] = (int) (System.nanoTime() & 0xFFFF);
+                final int socket = s;
+                receivers[s] = Thread.ofPlatform().daemon().name("blast-recv-" + s).start(() -> receiveLoop(socket));
+            }
+        }
+
+        SubdomainScanner.ScanResult execute(long deadlineNanos) {
+            int total = words.size();
+            int next = 0;
+            int cacheChecked = -1;
+            boolean deadlineReached = false;
+            long nextSweep = System.nanoTime() + SWEEP_INTERVAL_NANOS;
+            while (completed.get() < total) {
+                long now = System.nanoTime();
+                if (now - deadlineNanos >= 0) {
+                    deadlineReached = true;
+                    break;
+                }
+                if (now - nextSweep >= 0) {
+                    sweep(now);
+                    nextSweep = now + SWEEP_INTERVAL_NANOS;
+                }
+                if (cache != null && retries.isEmpty() && next < total && next != cacheChecked) {
+                    // Tên đã có trong cache không cần suất gửi
+                    DnsAnswer cached = cache.get(words.word(next) + "." + targetDomain);
+                    if (cached != null) {
+                        if (cached.isFound()) reportFound(next, cached.addresses, cached.cname);
+                        next++;
+                        finish(false);
+                        continue;
+                    }
+                    cacheChecked = next;
+                }
+                if (inFlight.get() >= window || (retries.isEmpty() && next >= total)) {
+                    LockSupport.parkNanos(50_000);
+                    continue;
+                }
+                long pacing = pacingDelay(nextSocket);
+                if (pacing > 0) {
+                    // Chưa tới lượt token: ngủ nhưng vẫn quay lại kịp để quét timeout
+                    LockSupport.parkNanos(Math.min(pacing, SWEEP_INTERVAL_NANOS));
+                    continue;
+                }
+                if (!limiter.tryAcquire()) {
+                    LockSupport.parkNanos(50_000);
+                    continue;
+                }
+                TokenBucket.consumeAll(sharedRates);
+                if (resolverRates != null) TokenBucket.consumeAll(resolverRates[nextSocket % resolvers.size()]);
+                send(retries.isEmpty() ? next++ : retries.poll(), now);
+            }
+            running = false;
+            close();
+            // Truy vấn chưa gửi hoặc còn đang chờ lúc dừng
+            int missing = total - completed.get();
+            return new SubdomainScanner.ScanResult(new ArrayList<>(found), total, foundCount.get(),
+                    unresolved.get() + missing, deadlineReached, wildcardHits.get());
+        }
+
+        /**
+         * Thời gian phải chờ token trước khi gửi qua socket s.
+         */
+        long pacingDelay(int s) {
+            long wait = 0;
+            for (TokenBucket bucket : sharedRates) {
+                if (bucket != null) wait = Math.max(wait, bucket.delayNanos());
+            }
+            TokenBucket own = resolverRates != null ? resolverRates[s % resolvers.size()] : null;
+            return own != null ? Math.max(wait, own.delayNanos()) : wait;
+        }
+
+        void send(int index, long now) {
+            // Socket hết transaction ID (resolver chậm giữ đủ 65536 truy vấn) thì chuyển sang socket kế tiếp
+            int s = -1;
+            int id = EMPTY;
+            for (int tried = 0; tried < socketCount && id == EMPTY; tried++) {
+                s = nextSocket;
+                nextSocket = (s + 1) % socketCount;
+                id = freeId(s);
+            }
+            if (id == EMPTY) {
+                limiter.onIgnore();
+                retries.add(index); // Mọi socket đều đầy: gửi lại sau khi sweep thu hồi bớt
+                return;
+            }
+            AtomicIntegerArray table = slots[s];
+            nextId[s] = (id + 1) & 0xFFFF;
+
+            // Template: header cố định, chỉ thay ID và phần nhãn subdomain, hậu tố target mã hóa sẵn
+            ByteBuffer buf = sendBuffers[s];
+            buf.clear();
+            buf.putShort((short) id);
+            buf.putShort((short) 0x0100); // RD
+            buf.putShort((short) 1);      // QDCOUNT
+            buf.putShort((short) 0);
+            buf.putShort((short) 0);
+            buf.putShort((short) 0);
+            if (!putLabels(buf, words, index, suffix.length - 4)) {
+                limiter.onIgnore();
+                finish(true); // Tên quá dài khi ghép với domain đích
+                return;
+            }
+            buf.put(suffix);
+            buf.flip();
+
+            attempts[index]++;
+            sentAt[s][id] = now;
+            table.set(id, index);
+            inFlight.incrementAndGet();
+            try {
+                channels[s].write(buf);
+            } catch (IOException e) {
+                if (table.compareAndSet(id, index, EMPTY)) {
+                    inFlight.decrementAndGet();
+                    limiter.onIgnore();
+                    finish(true);
+                }
+            }
+        }
+
+        /**
+         * Transaction ID trống đầu tiên của socket s tính từ nextId, EMPTY nếu cả bảng đã đầy.
+         */
+        int freeId(int s) {
+            AtomicIntegerArray table = slots[s];
+            int id = nextId[s];
+            for (int i = 0; i < ID_SPACE; i++) {
+                if (table.get(id) == EMPTY) return id;
+                id = (id + 1) & 0xFFFF;
+            }
+            return EMPTY;
+        }
+
+        /**
+         * Thu hồi truy vấn quá hạn: gửi lại nếu còn lượt, không thì tính là chưa có kết quả.
+         * Chỉ chạy trên thread gửi nên hàng đợi gửi lại không cần đồng bộ.
+         */
+        void sweep(long now) {
+            for (int s = 0; s < socketCount; s++) {
+                AtomicIntegerArray table = slots[s];
+                long[] sent = sentAt[s];
+                // Timeout theo số lần đã gửi: RTO, 2 x RTO, 4 x RTO...
+                long[] timeoutNanos = new long[maxRetries + 2];
+                for (int attempt = 1; attempt < timeoutNanos.length; attempt++) {
+                    timeoutNanos[attempt] = rtt[s].timeoutNanos(attempt);
+                }
+                for (int id = 0; id < ID_SPACE; id++) {
+                    int index = table.get(id);
+                    if (index == EMPTY || now - sent[id] < timeoutNanos[Math.min(attempts[index], maxRetries + 1)]) continue;
+                    if (table.compareAndSet(id, index, EMPTY)) {
+                        inFlight.decrementAndGet();
+                        limiter.onDropped();
+                        if (attempts[index] <= maxRetries) {
+                            retries.add(index);
+                        } else {
+                            finish(true);
+                        }
+                    }
+                }
+            }
+        }
+
+        void receiveLoop(int s) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+            DatagramChannel ch = channels[s];
+            while (running) {
+                buf.clear();
+                try {
+                    ch.read(buf);
+                } catch (PortUnreachableException e) {
+                    continue; // ICMP từ resolver, truy vấn sẽ timeout và được gửi lại
+                } catch (ClosedChannelException e) {
+                    return;
+                } catch (IOException e) {
+                    if (!running) return;
+                    continue;
+                }
+                handleResponse(s, buf, buf.position());
+            }
+        }
+
+        void handleResponse(int s, ByteBuffer buf, int limit) {
+            if (limit < HEADER_SIZE) return;
+            int flags = buf.getShort(2) & 0xFFFF;
+            if ((flags & 0x8000) == 0) return; // Không phải response
+            int id = buf.getShort(0) & 0xFFFF;
+            int index = slots[s].get(id);
+            if (index == EMPTY || (buf.getShort(4) & 0xFFFF) != 1) return;
+            int pos = matchQuestion(buf, limit, words, index, suffix);
+            if (pos < 0) return; // Response lạc (ID trùng sau timeout) hoặc giả mạo
+            long rttNanos = System.nanoTime() - sentAt[s][id];
+            if (!slots[s].compareAndSet(id, index, EMPTY)) return;
+            inFlight.decrementAndGet();
+            // Karn: bỏ mẫu RTT của truy vấn đã gửi lại (mất gói đã tính lúc timeout)
+            boolean firstAttempt = attempts[index] == 1;
+            limiter.onSuccess(resolvers.get(s % resolvers.size()), firstAttempt ? rttNanos : 0, 0);
+            if (firstAttempt) {
+                rtt[s].sample(rttNanos);
+            }
+
+            int rcode = flags & 0x0F;
+            if (rcode != 0 && rcode != 3 || (flags & 0x0200) != 0) { // SERVFAIL/REFUSED hoặc bị cắt (TC)
+                finish(true);
+                return;
+            }
+            int answers = buf.getShort(6) & 0xFFFF;
+            List<String> addresses = null;
+            String cname = null;
+            boolean wantCname = wildcard != null && wildcard.hasCnames();
+            long ttl = Long.MAX_VALUE;
+            for (int a = 0; a < answers && rcode == 0; a++) {
+                pos = skipName(buf, pos, limit);
+                if (pos < 0 || pos + 10 > limit) break;
+                int type = buf.getShort(pos) & 0xFFFF;
+                long recordTtl = buf.getInt(pos + 4) & 0xFFFFFFFFL;
+                int rdLength = buf.getShort(pos + 8) & 0xFFFF;
+                pos += 10;
+                if (pos + rdLength > limit) break;
+                if ((type == 1 && rdLength == 4) || (type == 28 && rdLength == 16)) {
+                    if (addresses == null) addresses = new ArrayList<>(2);
+                    addresses.add(address(buf, pos, rdLength));
+                    ttl = Math.min(ttl, recordTtl);
+                } else if (type == 5 && cname == null && wantCname) {
+                    cname = readName(buf, pos, limit); // Chỉ đọc khi cần so với CNAME của wildcard
+                }
+                pos += rdLength;
+            }
+            // Tên đầy đủ chỉ được dựng khi có địa chỉ hoặc cần ghi cache
+            if (addresses != null) {
+                if (cache != null) cache.put(DnsAnswer.found(domainOf(index), addresses, ttl, cname));
+                reportFound(index, addresses, cname);
+                finish(false);
+                return;
+            }
+            // NXDOMAIN hoặc NOERROR không có A/AAAA
+            if (cache != null) {
+                DnsAnswer.Status status = rcode == 3 ? DnsAnswer.Status.NXDOMAIN : DnsAnswer.Status.NODATA;
+                cache.put(new DnsAnswer(domainOf(index), status, null, negativeTtl(buf, limit)));
+            }
+            finish(false);
+        }
+
+        String domainOf(int index) {
+            return words.word(index) + "." + targetDomain;
+        }
+
+        void reportFound(int index, List<String> addresses, String cname) {
+            if (wildcard != null && wildcard.matches(addresses, cname)) {
+                wildcardHits.incrementAndGet(); // Chỉ là câu trả lời của *.domain
+                return;
+            }
+            String domain = domainOf(index);
+            if (listener != null) {
+                listener.onFound(domain, index);
+            } else {
+                found.add(domain);
+            }
+            foundCount.incrementAndGet();
+            System.out.println("✅ Tìm thấy: " + domain);
+        }
+
+        void finish(boolean isUnresolved) {
+            if (isUnresolved) unresolved.incrementAndGet();
+            completed.incrementAndGet();
+        }
+
+        void close() {
+            running = false;
+            for (DatagramChannel ch : channels) {
+                if (ch == null) continue;
+                try {
+                    ch.close();
+                } catch (IOException ignored) {
+                }
+            }
+            for (Thread t : receivers) {
+                if (t == null) continue;
+                try {
+                    t.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            // Trả lại suất của các truy vấn còn chờ lúc dừng
+            for (AtomicIntegerArray table : slots) {
+                if (table == null) continue;
+                for (int id = 0; id < ID_SPACE; id++) {
+                    int index = table.get(id);
+                    if (index != EMPTY && table.compareAndSet(id, index, EMPTY)) {
+                        inFlight.decrementAndGet();
+                        limiter.onIgnore();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Mã hóa phần tên cố định: các nhãn của target, byte 0 kết thúc, QTYPE=A, QCLASS=IN.
+     */
+    static byte[] encodeSuffix(String targetDomain) {
+        String name = targetDomain.endsWith(".") ? targetDomain.substring(0, targetDomain.length() - 1) : targetDomain;
+        ByteBuffer buf = ByteBuffer.allocate(name.length() + 6);
+        if (!name.isEmpty() && !putLabels(buf, name, 0)) {
+            throw new IllegalArgumentException("Domain không hợp lệ: " + targetDomain);
+        }
+        buf.put((byte) 0);
+        buf.putShort((short) 1);
+        buf.putShort((short) 1);
+        byte[] out = new byte[buf.position()];
+        buf.flip();
+        buf.get(out);
+        return out;
+    }
+
+    /**
+     * Ghi tên dạng nhãn DNS (độ dài + ký tự) trực tiếp vào buffer, không tạo byte[] trung gian.
+     */
+    private static boolean putLabels(ByteBuffer buf, String name, int reserved) {
+        if (name.length() + 1 + reserved > MAX_NAME_LENGTH) return false;
+        int lengthPos = buf.position();
+        buf.put((byte) 0);
+        int length = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '.') {
+                if (length == 0) return false;
+                buf.put(lengthPos, (byte) length);
+                lengthPos = buf.position();
+                buf.put((byte) 0);
+                length = 0;
+            } else {
+                if (c > 0x7E || c <= 0x20 || ++length > 63) return false;
+                buf.put((byte) c);
+            }
+        }
+        if (length == 0) return false;
+        buf.put(lengthPos, (byte) length);
+        return true;
+    }
+
+    /**
+     * Ghi từ thứ index của wordlist dạng nhãn DNS, đọc thẳng từ arena (từ đã được kiểm tra lúc nạp).
+     */
+    private static boolean putLabels(ByteBuffer buf, Wordlist words, int index, int reserved) {
+        int size = words.length(index);
+        if (size + 1 + reserved > MAX_NAME_LENGTH) return false;
+        int lengthPos = buf.position();
+        buf.put((byte) 0);
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            byte c = words.byteAt(index, i);
+            if (c == '.') {
+                buf.put(lengthPos, (byte) length);
+                lengthPos = buf.position();
+                buf.put((byte) 0);
+                length = 0;
+            } else {
+                buf.put(c);
+                length++;
+            }
+        }
+        buf.put(lengthPos, (byte) length);
+        return true;
+    }
+
+    /**
+     * So phần question của response với từ đã hỏi (không phân biệt hoa thường),
+     * trả về vị trí ngay sau question hoặc -1 nếu không khớp.
+     */
+    private static int matchQuestion(ByteBuffer buf, int limit, Wordlist words, int index, byte[] suffix) {
+        int pos = HEADER_SIZE;
+        int size = words.length(index);
+        int start = 0;
+        while (true) {
+            int end = start;
+            while (end < size && words.byteAt(index, end) != '.') end++;
+            if (pos >= limit || (buf.get(pos++) & 0xFF) != end - start) return -1;
+            if (pos + (end - start) > limit) return -1;
+            for (int i = start; i < end; i++) {
+                if (lower(buf.get(pos++)) != words.byteAt(index, i)) return -1; // Từ trong arena đã là chữ thường
+            }
+            if (end == size) break;
+            start = end + 1;
+        }
+        if (pos + suffix.length > limit) return -1;
+        for (byte b : suffix) {
+            if (lower(buf.get(pos++)) != lower(b)) return -1;
+        }
+        return pos;
+    }
+
+    /**
+     * TTL phủ định (RFC 2308) từ bản ghi SOA ở phần AUTHORITY: min(TTL, MINIMUM), không có SOA thì 0.
+     */
+    private static long negativeTtl(ByteBuffer buf, int limit) {
+        int answers = buf.getShort(6) & 0xFFFF;
+        int authorities = buf.getShort(8) & 0xFFFF;
+        int pos = skipName(buf, HEADER_SIZE, limit);
+        if (pos < 0) return 0;
+        pos += 4; // QTYPE + QCLASS
+        for (int r = 0; r < answers + authorities; r++) {
+            pos = skipName(buf, pos, limit);
+            if (pos < 0 || pos + 10 > limit) return 0;
+            int type = buf.getShort(pos) & 0xFFFF;
+            long ttl = buf.getInt(pos + 4) & 0xFFFFFFFFL;
+            int rdLength = buf.getShort(pos + 8) & 0xFFFF;
+            pos += 10;
+            if (pos + rdLength > limit) return 0;
+            if (r >= answers && type == 6 && rdLength >= 20) {
+                // MINIMUM là 4 byte cuối của RDATA
+                long minimum = buf.getInt(pos + rdLength - 4) & 0xFFFFFFFFL;
+                return Math.min(ttl, minimum);
+            }
+            pos += rdLength;
+        }
+        return 0;
+    }
+
+    private static String address(ByteBuffer buf, int pos, int length) {
+        byte[] addr = new byte[length];
+        buf.get(pos, addr);
+        try {
+            return InetAddress.getByAddress(addr).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e); // Độ dài 4/16 đã được kiểm tra
+        }
+    }
+
+    /**
+     * Đọc tên miền (có con trỏ nén) bắt đầu tại pos, dạng chữ thường không dấu chấm cuối; null nếu hỏng.
+     */
+    private static String readName(ByteBuffer buf, int pos, int limit) {
+        StringBuilder sb = new StringBuilder();
+        for (int jumps = 0; pos < limit && jumps < 16; ) {
+            int length = buf.get(pos) & 0xFF;
+            if (length == 0) return sb.toString();
+            if ((length & 0xC0) == 0xC0) {
+                if (pos + 1 >= limit) return null;
+                pos = ((length & 0x3F) << 8) | (buf.get(pos + 1) & 0xFF);
+                jumps++;
+                continue;
+            }
+            if (pos + 1 + length > limit) return null;
+            if (sb.length() > 0) sb.append('.');
+            for (int i = pos + 1; i <= pos + length; i++) {
+                sb.append((char) lower(buf.get(i)));
+            }
+            pos += length + 1;
+        }
+        return null;
+    }
+
+    private static int skipName(ByteBuffer buf, int pos, int limit) {
+        while (pos < limit) {
+            int length = buf.get(pos) & 0xFF;
+            if (length == 0) return pos + 1;
+            if ((length & 0xC0) == 0xC0) return pos + 2; // Con trỏ nén
+            pos += length + 1;
+        }
+        return -1;
+    }
+
+    private static int lower(int c) {
+        c &= 0xFF;
+        return c >= 'A' && c <= 'Z' ? c | 0x20 : c;
+    }
+
+    /**
+     * Hàng đợi vòng các chỉ số cần gửi lại (kiểu int, không boxing), chỉ dùng trên thread gửi.
+     */
+    private static final class IntRing {
+        private int[] items;
+        private int head;
+        private int size;
+
+        IntRing(int capacity) {
+            items = new int[Math.max(16, capacity)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(int value) {
+            if (size == items.length) {
+                int[] grown = new int[items.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = items[(head + i) % items.length];
+                }
+                items = grown;
+                head = 0;
+            }
+            items[(head + size) % items.length] = value;
+            size++;
+        }
+
+        int poll() {
+            int value = items[head];
+            head = (head + 1) % items.length;
+            size--;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package server.scanner;
+
+/**
+ * Bloom filter cho tên miền: tập gần đúng, bộ nhớ cố định (khoảng 10 bit mỗi tên với 1% dương tính
+ * giả), không bao giờ báo thiếu tên đã thêm. Dùng để bỏ trùng ứng viên khi sinh hàng triệu tên
+ * mà không giữ chúng trong một HashSet. Không an toàn đa luồng.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashes;
+    private long added;
+
+    /**
+     * @param expected số tên dự kiến thêm vào
+     * @param falsePositiveRate tỉ lệ dương tính giả mong muốn khi đã thêm đủ expected tên
+     */
+    public BloomFilter(long expected, double falsePositiveRate) {
+        long n = Math.max(1, expected);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.min(Integer.MAX_VALUE - 8, (Math.max(64, m) + 63) / 64)];
+        this.bitCount = bits.length * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Thêm tên, true nếu tên chưa có (hoặc có thể chưa có) trước đó.
+     */
+    public boolean add(CharSequence name) {
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1; // Lẻ để các vị trí không trùng nhau
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((bits[word] & mask) == 0) {
+                bits[word] |= mask;
+                changed = true;
+            }
+        }
+        if (changed) added++;
+        return changed;
+    }
+
+    public boolean mightContain(CharSequence name) {
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Số tên đã thêm (không tính tên bị coi là trùng).
+     */
+    public long size() {
+        return added;
+    }
+
+    public long sizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    /**
+     * FNV-1a 64 bit rồi trộn bit (fmix64 của MurmurHash3) để hai nửa 32 bit đủ độc lập cho double hashing.
+     */
+    private static long hash(CharSequence name) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            h = (h ^ name.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,34 @@
+package server.scanner;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bọc một DnsResolver: trả câu trả lời còn hạn từ DnsCache, chỉ gửi truy vấn khi cache trượt.
+ */
+public class CachingDnsResolver implements DnsResolver {
+    private final DnsResolver delegate;
+    private final DnsCache cache;
+
+    public CachingDnsResolver(DnsResolver delegate, DnsCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public CompletableFuture<DnsAnswer> resolve(String hostname) {
+        DnsAnswer cached = cache.get(hostname);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<DnsAnswer> future = delegate.resolve(hostname);
+        future.thenAccept(cache::put);
+        return future;
+    }
+
+    /**
+     * Resolver bên dưới là resolver dùng chung của scanner, không đóng theo lớp bọc.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,168 @@
+package server.scanner;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Sinh dần tên ứng viên từ các subdomain đã tìm thấy (hạt giống, ví dụ "api" hay "mail.eu"), kiểu
+ * altdns/gotator: thêm số (dev -> dev1, dev-2; dev1 -> dev2), ghép với môi trường (api-dev, staging-api,
+ * dev.api; dev-api -> qa-api), rồi lần lượt ghép với từng từ (hạt giống trước, sau đó wordlist theo
+ * thứ tự phổ biến) bằng dấu gạch (api-admin, admin-api) và thêm tầng (admin.api).
+ * <p>
+ * Ứng viên được sinh khi cần, chỉ giữ một hàng đợi nhỏ cho hạt giống/từ đang xét, nên có thể duyệt
+ * hàng triệu tên với bộ nhớ cố định. Tên trùng hoặc đã tra cứu bị loại bằng Bloom filter
+ * (người gọi thêm sẵn wordlist và tên đã tìm thấy vào filter).
+ */
+public class CandidateGenerator implements Iterator<String> {
+    private static final String[] ENVIRONMENTS = {
+            "dev", "test", "staging", "stage", "qa", "uat", "prod", "beta", "demo", "sandbox", "internal", "old"
+    };
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MAX_NUMBER = 9; // Thêm số 0..9 vào nhãn đầu
+
+    private final List<String> seeds;
+    private final List<String> words;
+    private final BloomFilter seen;
+    private final int maxLength;
+    private final long limit;
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+
+    private int seedIndex;    // Hạt giống đang sinh biến thể số/môi trường
+    private long mixIndex;    // Từ đang ghép: [0, seeds.size()) là hạt giống, sau đó là wordlist
+    private int mixSeed;      // Hạt giống đang ghép với từ mixIndex
+    private long produced;
+    private String next;
+
+    /**
+     * @param seeds     subdomain đã tìm thấy, bỏ phần domain đích (chữ thường)
+     * @param words     từ để ghép (thường là wordlist đã chuẩn hóa)
+     * @param seen      tên đã tra cứu/đã sinh, tên mới được thêm vào
+     * @param maxLength độ dài tối đa của tên sinh ra (chưa gồm domain đích)
+     * @param limit     số ứng viên tối đa
+     */
+    public CandidateGenerator(List<String> seeds, List<String> words, BloomFilter seen, int maxLength, long limit) {
+        this.seeds = seeds;
+        this.words = words;
+        this.seen = seen;
+        this.maxLength = maxLength;
+        this.limit = limit;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && produced < limit) {
+            String candidate = pending.poll();
+            if (candidate == null) {
+                if (!refill()) return false;
+                continue;
+            }
+            if (isValid(candidate) && seen.add(candidate)) {
+                next = candidate;
+                produced++;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        String candidate = next;
+        next = null;
+        return candidate;
+    }
+
+    public long getProduced() {
+        return produced;
+    }
+
+    /**
+     * Sinh nhóm ứng viên tiếp theo vào pending, false nếu đã hết.
+     */
+    private boolean refill() {
+        if (seeds.isEmpty()) return false;
+        if (seedIndex < seeds.size()) {
+            alter(seeds.get(seedIndex++));
+            return true;
+        }
+        if (mixIndex >= seeds.size() + (long) words.size()) return false;
+        String word = mixIndex < seeds.size() ? seeds.get((int) mixIndex) : words.get((int) (mixIndex - seeds.size()));
+        String seed = seeds.get(mixSeed);
+        if (++mixSeed == seeds.size()) {
+            mixSeed = 0;
+            mixIndex++;
+        }
+        if (!word.equals(seed)) {
+            String first = firstLabel(seed);
+            String rest = seed.substring(first.length());
+            if (word.indexOf('.') < 0) {
+                pending.add(first + "-" + word + rest);
+                pending.add(word + "-" + first + rest);
+            }
+            pending.add(word + "." + seed);
+        }
+        return true;
+    }
+
+    /**
+     * Biến thể số và môi trường của nhãn đầu hạt giống.
+     */
+    private void alter(String seed) {
+        String first = firstLabel(seed);
+        String rest = seed.substring(first.length());
+        int digits = first.length();
+        while (digits > 0 && Character.isDigit(first.charAt(digits - 1))) digits--;
+        String base = first.substring(0, digits);
+        if (digits < first.length() && first.length() - digits <= 9) {
+            // dev1 -> dev0, dev2, dev3...
+            long number = Long.parseLong(first.substring(digits));
+            for (long n = Math.max(0, number - 1); n <= number + 2; n++) {
+                pending.add(base + n + rest);
+            }
+        }
+        if (!base.isEmpty() && !base.endsWith("-")) {
+            for (int n = 0; n <= MAX_NUMBER; n++) {
+                pending.add(base + n + rest);
+                pending.add(base + "-" + n + rest);
+            }
+        }
+        for (String env : ENVIRONMENTS) {
+            if (first.startsWith(env + "-")) {
+                // Đổi môi trường: dev-api -> qa-api, staging-api...
+                String name = first.substring(env.length() + 1);
+                for (String other : ENVIRONMENTS) {
+                    pending.add(other + "-" + name + rest);
+                }
+            }
+        }
+        for (String env : ENVIRONMENTS) {
+            pending.add(env + "-" + first + rest);
+            pending.add(first + "-" + env + rest);
+            pending.add(env + "." + seed);
+        }
+    }
+
+    private static String firstLabel(String name) {
+        int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private boolean isValid(String candidate) {
+        if (candidate.length() > maxLength) return false;
+        int label = 0;
+        for (int i = 0; i < candidate.length(); i++) {
+            char c = candidate.charAt(i);
+            if (c == '.') {
+                if (label == 0) return false;
+                label = 0;
+            } else if (++label > MAX_LABEL_LENGTH) {
+                return false;
+            }
+        }
+        // Nhãn không được bắt đầu hoặc kết thúc bằng '-' (ghép với từ có sẵn '-')
+        return label > 0 && candidate.charAt(0) != '-' && !candidate.contains("-.")
+                && !candidate.contains(".-") && !candidate.endsWith("-");
+    }
+}
@@ -0,0 +1,267 @@
+package server.scanner;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hàng đợi công việc của scan đệ quy: mỗi host tìm thấy (chưa quá độ sâu tối đa) thành một gốc mới,
+ * được quét tiếp với wordlist tầng dưới (ví dụ api.domain -> dev.api.domain). Các gốc được xử lý theo
+ * chiều rộng (FIFO): hết tên của tầng trên thì chuyển ngay sang gốc đã tìm thấy trong khi các truy vấn
+ * cuối của tầng trên vẫn đang chờ, nên mọi tầng dùng chung một luồng gửi và một engine tra cứu thay vì
+ * chạy nối tiếp. Hàng đợi gốc có giới hạn, mỗi tầng (từ tầng 2) có ngân sách số tên riêng.
+ * <p>
+ * Trước khi quét một gốc, một nhãn ngẫu nhiên dưới gốc đó được hỏi song song; nếu có trả lời thì
+ * gốc là wildcard (*.api.domain) và bị bỏ qua. Tên tầng dưới đã có trong wordlist tầng 1 (từ nhiều
+ * nhãn như "dev.www") hoặc đã gửi từ gốc khác bị loại bằng Bloom filter.
+ * <p>
+ * Dùng từ một thread gửi duy nhất (next, track); câu trả lời về từ thread của engine DNS.
+ */
+public class DiscoveryQueue implements Iterator<String> {
+    private static final int MAX_PENDING_BASES = 10000;
+
+    private final String suffix;            // "." + domain đích
+    private final List<String> subWords;    // Wordlist cho các tầng dưới
+    private final int maxDepth;
+    private final long levelBudget;
+    private final DnsResolver resolver;
+    private final WildcardFilter wildcard;  // Wildcard của domain đích, null nếu không có
+    private final long deadlineNanos;
+    private final BloomFilter seen;         // Tên (tương đối) đã hoặc sẽ được gửi
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Base> bases = new ArrayDeque<>();
+    private final Set<String> knownBases = new HashSet<>();
+    private final long[] issued;            // Số tên đã gửi theo tầng
+    private Base current;
+    private int outstanding;                // Truy vấn chưa có kết quả (có thể sinh thêm gốc)
+    private String next;
+    private int nextIndex = -1;
+    private int nextDepth;
+    private int lastIndex = -1;
+    private int lastDepth;
+    private long scannedBases;
+    private long wildcardBases;
+    private long droppedBases;
+
+    /**
+     * Một gốc đang chờ hoặc đang quét: tiền tố tương đối với domain đích ("" là chính domain đích).
+     */
+    private static final class Base {
+        final String prefix;
+        final int depth;
+        final List<String> words;
+        final CompletableFuture<Boolean> isWildcard;
+        int cursor;
+
+        Base(String prefix, int depth, List<String> words, CompletableFuture<Boolean> isWildcard) {
+            this.prefix = prefix;
+            this.depth = depth;
+            this.words = words;
+            this.isWildcard = isWildcard;
+        }
+    }
+
+    /**
+     * @param maxDepth    số tầng nhãn tối đa dưới domain đích (1 = không đệ quy)
+     * @param levelBudget số tên tối đa gửi cho mỗi tầng từ tầng 2
+     * @param seen        chứa sẵn các từ của wordlist tầng 1
+     */
+    public DiscoveryQueue(String targetDomain, List<String> subWords, int maxDepth, long levelBudget,
+                          DnsResolver resolver, WildcardFilter wildcard, long deadlineNanos, BloomFilter seen) {
+        this.suffix = "." + targetDomain;
+        this.subWords = subWords;
+        this.maxDepth = Math.max(1, maxDepth);
+        this.levelBudget = levelBudget;
+        this.resolver = resolver;
+        this.wildcard = wildcard;
+        this.deadlineNanos = deadlineNanos;
+        this.seen = seen;
+        this.issued = new long[this.maxDepth + 1];
+    }
+
+    /**
+     * Quét wordlist ngay dưới domain đích (tầng 1), tên giữ chỉ số trong wordlist.
+     */
+    public void addTarget(List<String> words) {
+        lock.lock();
+        try {
+            bases.add(new Base("", 0, words, CompletableFuture.completedFuture(false)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Thêm host đã tìm thấy (tên đầy đủ) làm gốc mới nếu chưa quá độ sâu tối đa.
+     */
+    public void addHost(String host) {
+        String name = host.toLowerCase(java.util.Locale.ROOT);
+        if (!name.endsWith(suffix) || name.length() == suffix.length()) return;
+        String prefix = name.substring(0, name.length() - suffix.length());
+        int depth = 1;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (prefix.charAt(i) == '.') depth++;
+        }
+        if (depth >= maxDepth) return;
+        lock.lock();
+        try {
+            if (bases.size() >= MAX_PENDING_BASES) {
+                droppedBases++;
+                return;
+            }
+            if (!knownBases.add(prefix)) return;
+            CompletableFuture<Boolean> probe = resolver.resolve(WildcardFilter.randomLabel() + "." + prefix + suffix)
+                    .handle((answer, err) -> answer != null && answer.isFound());
+            bases.add(new Base(prefix, depth, subWords, probe));
+            probe.whenComplete((isWildcard, err) -> signal());
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Theo dõi truy vấn của tên vừa lấy ra bằng next(): host tìm thấy (không phải wildcard) thành gốc mới.
+     */
+    public CompletableFuture<DnsAnswer> track(CompletableFuture<DnsAnswer> lookup) {
+        lock.lock();
+        try {
+            outstanding++;
+        } finally {
+            lock.unlock();
+        }
+        int depth = lastDepth;
+        lookup.whenComplete((answer, err) -> {
+            if (depth < maxDepth && answer != null && answer.isFound() && (wildcard == null || !wildcard.matches(answer))) {
+                addHost(answer.name);
+            }
+            lock.lock();
+            try {
+                outstanding--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        });
+        return lookup;
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Còn tên để gửi; khi tạm hết tên nhưng còn truy vấn đang chờ (có thể sinh thêm gốc) thì chờ,
+     * false nếu đã xong hoặc quá hạn chót.
+     */
+    @Override
+    public boolean hasNext() {
+        lock.lock();
+        try {
+            while (next == null) {
+                if (current != null && current.cursor < current.words.size()
+                        && (current.depth == 0 || issued[current.depth + 1] < levelBudget)) {
+                    int cursor = current.cursor++;
+                    String word = current.words.get(cursor);
+                    if (current.depth == 0) {
+                        next = word;
+                        nextIndex = cursor;
+                    } else {
+                        String name = word + "." + current.prefix;
+                        if (!seen.add(name)) continue;
+                        next = name;
+                        nextIndex = -1;
+                    }
+                    nextDepth = current.depth + 1;
+                    issued[nextDepth]++;
+                    break;
+                }
+                current = null;
+                Base ready = takeReady();
+                if (ready != null) {
+                    current = ready;
+                    continue;
+                }
+                if (bases.isEmpty() && outstanding == 0) return false;
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) return false;
+                try {
+                    changed.awaitNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gốc đầu tiên (theo thứ tự vào hàng) đã dò wildcard xong; gốc wildcard hoặc tầng đã hết ngân sách bị bỏ.
+     */
+    private Base takeReady() {
+        for (Iterator<Base> it = bases.iterator(); it.hasNext(); ) {
+            Base base = it.next();
+            if (!base.isWildcard.isDone()) continue;
+            it.remove();
+            if (base.isWildcard.join()) {
+                wildcardBases++;
+                continue;
+            }
+            if (base.depth > 0 && issued[base.depth + 1] >= levelBudget) {
+                droppedBases++;
+                continue;
+            }
+            if (base.depth > 0) scannedBases++;
+            return base;
+        }
+        return null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        String name = next;
+        next = null;
+        lastIndex = nextIndex;
+        lastDepth = nextDepth;
+        return name;
+    }
+
+    /**
+     * Vị trí trong wordlist của tên vừa lấy ra, -1 nếu ở tầng dưới.
+     */
+    public int index() {
+        return lastIndex;
+    }
+
+    public String describe() {
+        lock.lock();
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int depth = 2; depth <= maxDepth; depth++) {
+                sb.append(depth > 2 ? ", " : "").append("tầng ").append(depth).append(": ").append(issued[depth]).append(" tên");
+            }
+            return sb + "; quét sâu " + scannedBases + " host, bỏ " + wildcardBases + " host wildcard"
+                    + (droppedBases > 0 ? ", " + droppedBases + " host do đầy hàng đợi/hết ngân sách" : "");
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package server.scanner;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Kết quả tra cứu DNS cho một tên miền.
+ */
+public class DnsAnswer {
+    /**
+     * Trạng thái của câu trả lời.
+     */
+    public enum Status {
+        FOUND,      // Có bản ghi địa chỉ
+        NXDOMAIN,   // Tên miền không tồn tại
+        NODATA,     // Tên tồn tại nhưng không có bản ghi địa chỉ
+        SERVFAIL,   // Resolver trả lỗi
+        TIMEOUT,    // Không nhận được phản hồi
+        ERROR       // Lỗi khác (socket, parse...)
+    }
+
+    public final String name;
+    public final Status status;
+    public final List<String> addresses;
+    public final long ttlSeconds;
+    public final long rttNanos;     // RTT của lần gửi được trả lời, 0 nếu không qua mạng / không đo
+    public final int attempts;      // Số lần đã gửi truy vấn
+    public final InetSocketAddress server; // Resolver đã trả lời, null nếu không qua mạng
+    public final String cname;      // Đích CNAME đầu tiên (chữ thường, không dấu chấm cuối), null nếu không có
+
+    public DnsAnswer(String name, Status status, List<String> addresses, long ttlSeconds) {
+        this(name, status, addresses, ttlSeconds, null);
+    }
+
+    public DnsAnswer(String name, Status status, List<String> addresses, long ttlSeconds, String cname) {
+        this(name, status, addresses, ttlSeconds, cname, 0, 1, null);
+    }
+
+    public DnsAnswer(String name, Status status, List<String> addresses, long ttlSeconds, String cname,
+                     long rttNanos, int attempts, InetSocketAddress server) {
+        this.name = name;
+        this.status = status;
+        this.addresses = addresses != null ? addresses : Collections.emptyList();
+        this.ttlSeconds = ttlSeconds;
+        this.cname = cname;
+        this.rttNanos = rttNanos;
+        this.attempts = attempts;
+        this.server = server;
+    }
+
+    /**
+     * Bản sao kèm thông tin đo đạc của resolver.
+     */
+    public DnsAnswer withTiming(long rttNanos, int attempts, InetSocketAddress server) {
+        return new DnsAnswer(name, status, addresses, ttlSeconds, cname, rttNanos, attempts, server);
+    }
+
+    public static DnsAnswer found(String name, List<String> addresses, long ttlSeconds) {
+        return new DnsAnswer(name, Status.FOUND, addresses, ttlSeconds);
+    }
+
+    public static DnsAnswer found(String name, List<String> addresses, long ttlSeconds, String cname) {
+        return new DnsAnswer(name, Status.FOUND, addresses, ttlSeconds, cname);
+    }
+
+    /**
+     * Chuẩn hóa tên miền để so sánh: chữ thường, bỏ dấu chấm cuối.
+     */
+    public static String normalize(String name) {
+        String lower = name.toLowerCase();
+        return lower.endsWith(".") ? lower.substring(0, lower.length() - 1) : lower;
+    }
+
+    public static DnsAnswer of(String name, Status status) {
+        return new DnsAnswer(name, status, null, 0);
+    }
+
+    public boolean isFound() {
+        return status == Status.FOUND;
+    }
+
+    /**
+     * Câu trả lời chắc chắn (tồn tại hoặc không tồn tại), khác với lỗi/timeout.
+     */
+    public boolean isDefinitive() {
+        return status == Status.FOUND || status == Status.NXDOMAIN || status == Status.NODATA;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + status + (cname == null ? "" : " CNAME " + cname) + (addresses.isEmpty() ? "" : " " + addresses);
+    }
+}
@@ -0,0 +1,201 @@
+package server.scanner;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache câu trả lời DNS dùng chung cho mọi lượt scan: lưu cả kết quả có (FOUND) lẫn
+ * không có (NXDOMAIN/NODATA), hết hạn theo TTL của bản ghi hoặc SOA MINIMUM (RFC 2308).
+ * Chia thành nhiều phân vùng LRU có giới hạn số phần tử để giảm tranh chấp khóa;
+ * lỗi và timeout không bao giờ được cache. Có thể ghi ra file để giữ qua lần khởi động lại.
+ */
+public class DnsCache {
+    private static final int STRIPES = 16;
+    private static final int FILE_MAGIC = 0x444E5343; // "DNSC"
+    private static final int FILE_VERSION = 2; // 2: thêm CNAME
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long maxTtlSeconds;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxEntries    số tên tối đa giữ trong cache, vượt quá thì bỏ tên ít dùng nhất
+     * @param maxTtlSeconds trần TTL, tránh giữ câu trả lời quá lâu khi record có TTL rất lớn
+     */
+    public DnsCache(int maxEntries, long maxTtlSeconds) {
+        int perStripe = Math.max(1, maxEntries / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.maxTtlSeconds = maxTtlSeconds;
+    }
+
+    private static final class Entry {
+        final DnsAnswer.Status status;
+        final List<String> addresses;
+        final String cname;
+        final long expiresAtMillis; // Giờ hệ thống, để còn dùng được sau khi đọc lại từ file
+
+        Entry(DnsAnswer.Status status, List<String> addresses, String cname, long expiresAtMillis) {
+            this.status = status;
+            this.addresses = addresses;
+            this.cname = cname;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Entry> {
+        private static final long serialVersionUID = 1L;
+        private final int maxEntries;
+
+        Stripe(int maxEntries) {
+            super(16, 0.75f, true); // Thứ tự truy cập => LRU
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    private static String key(String name) {
+        return DnsAnswer.normalize(name);
+    }
+
+    private Stripe stripe(String key) {
+        return stripes[(key.hashCode() & Integer.MAX_VALUE) % STRIPES];
+    }
+
+    /**
+     * Câu trả lời còn hạn cho tên này, null nếu chưa có hoặc đã hết hạn.
+     */
+    public DnsAnswer get(String name) {
+        String key = key(name);
+        Stripe stripe = stripe(key);
+        Entry entry;
+        synchronized (stripe) {
+            entry = stripe.get(key);
+            if (entry != null && entry.expiresAtMillis <= System.currentTimeMillis()) {
+                stripe.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        long ttl = Math.max(0, (entry.expiresAtMillis - System.currentTimeMillis()) / 1000);
+        return new DnsAnswer(name, entry.status, entry.addresses, ttl, entry.cname);
+    }
+
+    /**
+     * Lưu câu trả lời chắc chắn có TTL dương; lỗi, timeout và TTL 0 bị bỏ qua. FOUND không có địa chỉ
+     * (điểm ủy quyền khi hỏi thẳng nameserver có thẩm quyền) cũng bị bỏ qua: cache dùng chung cho mọi chế độ
+     * và có thể ghi ra file, lượt scan qua resolver đệ quy không được nhận câu trả lời như vậy.
+     */
+    public void put(DnsAnswer answer) {
+        if (answer == null || !answer.isDefinitive() || answer.ttlSeconds <= 0) return;
+        if (answer.isFound() && answer.addresses.isEmpty()) return;
+        long ttl = Math.min(answer.ttlSeconds, maxTtlSeconds);
+        put(key(answer.name), new Entry(answer.status, answer.addresses, answer.cname, System.currentTimeMillis() + ttl * 1000));
+    }
+
+    private void put(String key, Entry entry) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.put(key, entry);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Ghi các câu trả lời còn hạn ra file (ghi file tạm rồi đổi tên để không hỏng file cũ).
+     */
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            for (Stripe stripe : stripes) {
+                List<Map.Entry<String, Entry>> entries;
+                synchronized (stripe) {
+                    entries = new ArrayList<>(stripe.entrySet());
+                }
+                for (Map.Entry<String, Entry> e : entries) {
+                    Entry entry = e.getValue();
+                    if (entry.expiresAtMillis <= now) continue;
+                    out.writeBoolean(true);
+                    out.writeUTF(e.getKey());
+                    out.writeByte(entry.status.ordinal());
+                    out.writeLong(entry.expiresAtMillis);
+                    out.writeShort(entry.addresses.size());
+                    for (String address : entry.addresses) {
+                        out.writeUTF(address);
+                    }
+                    out.writeUTF(entry.cname != null ? entry.cname : "");
+                }
+            }
+            out.writeBoolean(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Đọc lại cache từ file, bỏ các mục đã hết hạn. Trả về số mục đã nạp.
+     */
+    public int load(Path file) throws IOException {
+        if (!Files.exists(file)) return 0;
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt() == FILE_MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > FILE_VERSION) {
+                throw new IOException("File cache DNS không đúng định dạng: " + file);
+            }
+            DnsAnswer.Status[] statuses = DnsAnswer.Status.values();
+            while (in.readBoolean()) {
+                String key = in.readUTF();
+                int status = in.readUnsignedByte();
+                long expiresAt = in.readLong();
+                int count = in.readUnsignedShort();
+                List<String> addresses = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    addresses.add(in.readUTF());
+                }
+                String cname = version >= 2 ? in.readUTF() : "";
+                if (status >= statuses.length || expiresAt <= now) continue;
+                put(key, new Entry(statuses[status], addresses, cname.isEmpty() ? null : cname, expiresAt));
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,219 @@
+package server.scanner;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.dns.*;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.resolver.dns.SingletonDnsServerAddressStreamProvider;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Truy vấn DNS lẻ cho các loại bản ghi ngoài A (NS, SOA, NSEC...) để dò thông tin vùng trước khi scan.
+ * Dùng DnsNameResolver của Netty (tự chuyển sang TCP khi câu trả lời bị cắt); nội dung bản ghi được
+ * chép ra mảng byte để trả buffer ngay. Không dùng cho tra cứu hàng loạt (xem NettyDnsResolver).
+ */
+public class DnsQueryClient implements AutoCloseable {
+    public static final int DNS_PORT = 53;
+    private static final int EDNS_PAYLOAD_SIZE = 4096;
+    private static final int DNSSEC_OK = 0x8000; // Bit DO trong trường TTL của bản ghi OPT
+
+    private final EventLoopGroup group;
+    private final DnsNameResolver resolver;
+    private final InetSocketAddress server;
+    private final long timeoutMs;
+
+    /**
+     * @param server    resolver đệ quy dùng cho query(name, type)
+     * @param timeoutMs timeout mỗi truy vấn
+     */
+    public DnsQueryClient(InetSocketAddress server, long timeoutMs) {
+        this.server = server;
+        this.timeoutMs = timeoutMs;
+        this.group = new NioEventLoopGroup(1);
+        this.resolver = new DnsNameResolverBuilder(group.next())
+                .channelType(NioDatagramChannel.class)
+                .socketChannelType(NioSocketChannel.class)
+                .nameServerProvider(new SingletonDnsServerAddressStreamProvider(server))
+                .queryTimeoutMillis(timeoutMs)
+                .optResourceEnabled(false) // Tự thêm OPT (khi cần bit DO) để không gửi hai bản ghi OPT
+                .maxPayloadSize(EDNS_PAYLOAD_SIZE)
+                .build();
+    }
+
+    /**
+     * Bản ghi trong câu trả lời, tên chữ thường không có dấu chấm cuối.
+     */
+    public static final class Record {
+        public final String name;
+        public final DnsRecordType type;
+        public final long ttl;
+        public final byte[] data; // RDATA, tên trong CNAME/NS đã được giải nén
+
+        Record(String name, DnsRecordType type, long ttl, byte[] data) {
+            this.name = name;
+            this.type = type;
+            this.ttl = ttl;
+            this.data = data;
+        }
+
+        /**
+         * Tên miền ở đầu RDATA (đích NS/CNAME, tên kế tiếp của NSEC).
+         */
+        public String targetName() {
+            return normalize(DefaultDnsRecordDecoder.decodeName(Unpooled.wrappedBuffer(data)));
+        }
+    }
+
+    /**
+     * Câu trả lời: mã kết quả và các phần answer/authority/additional.
+     */
+    public static final class Reply {
+        public final DnsResponseCode code;
+        public final boolean authoritative;
+        public final List<Record> answers;
+        public final List<Record> authorities;
+        public final List<Record> additionals;
+
+        Reply(DnsResponse response) {
+            this.code = response.code();
+            this.authoritative = response.isAuthoritativeAnswer();
+            this.answers = records(response, DnsSection.ANSWER);
+            this.authorities = records(response, DnsSection.AUTHORITY);
+            this.additionals = records(response, DnsSection.ADDITIONAL);
+        }
+
+        public List<Record> answers(DnsRecordType type) {
+            List<Record> list = new ArrayList<>();
+            for (Record record : answers) {
+                if (record.type.equals(type)) list.add(record);
+            }
+            return list;
+        }
+    }
+
+    static List<Record> records(DnsMessage message, DnsSection section) {
+        int count = message.count(section);
+        if (count == 0) return Collections.emptyList();
+        List<Record> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DnsRecord record = message.recordAt(section, i);
+            if (record instanceof DnsRawRecord raw) {
+                list.add(new Record(normalize(raw.name()), raw.type(), raw.timeToLive(), ByteBufUtil.getBytes(raw.content())));
+            }
+        }
+        return list;
+    }
+
+    static String normalize(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".") ? lower.substring(0, lower.length() - 1) : lower;
+    }
+
+    /**
+     * Hỏi resolver đệ quy đã cấu hình.
+     */
+    public CompletableFuture<Reply> query(String name, DnsRecordType type) {
+        return query(server, name, type, false);
+    }
+
+    /**
+     * Hỏi một DNS server cụ thể; dnssecOk = true để xin kèm bản ghi DNSSEC (NSEC, RRSIG).
+     */
+    public CompletableFuture<Reply> query(InetSocketAddress target, String name, DnsRecordType type, boolean dnssecOk) {
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        List<DnsRecord> additionals = dnssecOk
+                ? List.of(new DefaultDnsRawRecord(".", DnsRecordType.OPT, EDNS_PAYLOAD_SIZE, DNSSEC_OK, Unpooled.EMPTY_BUFFER))
+                : List.of();
+        resolver.query(target, new DefaultDnsQuestion(name, type), additionals).addListener(f -> {
+            if (!f.isSuccess()) {
+                future.completeExceptionally(f.cause());
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<DnsResponse, InetSocketAddress> envelope = (AddressedEnvelope<DnsResponse, InetSocketAddress>) f.getNow();
+            try {
+                future.complete(new Reply(envelope.content()));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                envelope.release();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Địa chỉ (cổng 53) các nameserver có thẩm quyền của domain theo bản ghi NS, theo thứ tự trả về.
+     * Dùng glue trong phần additional nếu có, không thì hỏi A của từng tên NS. Rỗng nếu không tìm được.
+     */
+    public List<InetSocketAddress> nameServers(String domain) {
+        Set<InetSocketAddress> servers = new LinkedHashSet<>();
+        try {
+            Reply reply = query(domain, DnsRecordType.NS).get(timeoutMs * 2, TimeUnit.MILLISECONDS);
+            List<String> names = new ArrayList<>();
+            for (Record record : reply.answers(DnsRecordType.NS)) {
+                names.add(record.targetName());
+            }
+            List<CompletableFuture<Reply>> lookups = new ArrayList<>();
+            for (String name : names) {
+                boolean glued = false;
+                for (Record record : reply.additionals) {
+                    if (record.name.equals(name) && record.type.equals(DnsRecordType.A) && record.data.length == 4) {
+                        servers.add(new InetSocketAddress(InetAddress.getByAddress(record.data), DNS_PORT));
+                        glued = true;
+                    }
+                }
+                if (!glued) lookups.add(query(name, DnsRecordType.A));
+            }
+            for (CompletableFuture<Reply> lookup : lookups) {
+                for (Record record : lookup.get(timeoutMs * 2, TimeUnit.MILLISECONDS).answers(DnsRecordType.A)) {
+                    if (record.data.length == 4) {
+                        servers.add(new InetSocketAddress(InetAddress.getByAddress(record.data), DNS_PORT));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (UnknownHostException | ExecutionException | TimeoutException e) {
+            System.err.println("⚠️ Không lấy được NS của " + domain + ": " + e.getMessage());
+        }
+        return new ArrayList<>(servers);
+    }
+
+    public InetSocketAddress getServer() {
+        return server;
+    }
+
+    EventLoopGroup group() {
+        return group;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    @Override
+    public void close() {
+        resolver.close();
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+}
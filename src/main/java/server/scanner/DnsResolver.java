@@ -0,0 +1,19 @@
+package server.scanner;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Engine tra cứu DNS dùng cho SubdomainScanner, có thể thay thế
+ * (JDK blocking hoặc UDP bất đồng bộ trên Netty).
+ */
+public interface DnsResolver extends AutoCloseable {
+    /**
+     * Gửi truy vấn A cho một tên miền, future hoàn thành khi có câu trả lời.
+     * Không bao giờ hoàn thành với exception: lỗi được trả về dưới dạng DnsAnswer.
+     */
+    CompletableFuture<DnsAnswer> resolve(String hostname);
+
+    @Override
+    default void close() {
+    }
+}
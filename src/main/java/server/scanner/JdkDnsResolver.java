@@ -0,0 +1,40 @@
+package server.scanner;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Resolver dùng InetAddress.getAllByName (blocking) chạy trên một executor.
+ * Executor do bên gọi quản lý (có thể là virtual thread hoặc thread pool dùng chung).
+ */
+public class JdkDnsResolver implements DnsResolver {
+    private final ExecutorService executor;
+
+    public JdkDnsResolver(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<DnsAnswer> resolve(String hostname) {
+        return CompletableFuture.supplyAsync(() -> lookup(hostname), executor);
+    }
+
+    private static DnsAnswer lookup(String hostname) {
+        try {
+            InetAddress[] addrs = InetAddress.getAllByName(hostname);
+            List<String> ips = new ArrayList<>(addrs.length);
+            for (InetAddress addr : addrs) {
+                ips.add(addr.getHostAddress());
+            }
+            return DnsAnswer.found(hostname, ips, 0);
+        } catch (UnknownHostException e) {
+            return DnsAnswer.of(hostname, DnsAnswer.Status.NXDOMAIN);
+        } catch (Exception e) {
+            return DnsAnswer.of(hostname, DnsAnswer.Status.ERROR);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package server.scanner;
+
+/**
+ * Histogram độ trễ theo thang log (4 ô cho mỗi lần gấp đôi, sai số khoảng 19%), dùng để ước
+ * lượng phân vị như p95 mà không phải giữ từng mẫu. Số đếm bị chia đôi sau mỗi cửa sổ mẫu
+ * để histogram bám theo tình trạng gần đây của resolver.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS_PER_OCTAVE = 4;
+    private static final int BUCKETS = 26 * BUCKETS_PER_OCTAVE; // Từ 1µs tới khoảng 67 giây
+
+    private final long[] counts = new long[BUCKETS];
+    private final int window;
+    private long total;
+
+    /**
+     * @param window số mẫu trước mỗi lần chia đôi số đếm
+     */
+    public LatencyHistogram(int window) {
+        this.window = Math.max(1, window);
+    }
+
+    private static int bucket(long nanos) {
+        double micros = Math.max(1, nanos / 1000.0);
+        int index = (int) (Math.log(micros) / Math.log(2) * BUCKETS_PER_OCTAVE);
+        return Math.min(BUCKETS - 1, index);
+    }
+
+    /**
+     * Cận trên của ô (nano giây).
+     */
+    private static long upperBound(int bucket) {
+        return (long) (Math.pow(2, (bucket + 1) / (double) BUCKETS_PER_OCTAVE) * 1000);
+    }
+
+    public synchronized void record(long nanos) {
+        counts[bucket(nanos)]++;
+        if (++total >= window) {
+            total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] >>= 1;
+                total += counts[i];
+            }
+        }
+    }
+
+    public synchronized long count() {
+        return total;
+    }
+
+    /**
+     * Độ trễ (nano giây) mà tỉ lệ q mẫu không vượt quá, 0 nếu chưa có mẫu.
+     */
+    public synchronized long quantile(double q) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+}
@@ -0,0 +1,348 @@
+package server.scanner;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.codec.dns.*;
+import io.netty.resolver.dns.DnsServerAddressStreamProviders;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Resolver DNS bất đồng bộ trên UDP, dùng codec DNS của Netty.
+ * Mỗi socket giữ tối đa 65536 truy vấn đang chờ (theo transaction ID),
+ * vài event-loop thread đủ để giữ hàng chục nghìn truy vấn cùng lúc.
+ * Timeout mỗi lần gửi tính từ RTT ước lượng của resolver, truy vấn mất gói được gửi lại
+ * tối đa maxRetries lần với timeout nhân đôi. Tên không có bản ghi A (NODATA) được hỏi tiếp AAAA,
+ * để host chỉ có IPv6 vẫn được tìm thấy như khi tra bằng InetAddress.
+ */
+public class NettyDnsResolver implements DnsResolver {
+    private static final int ID_SPACE = 65536;
+    private static final int SOCKET_BUFFER_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_RETRIES = 2;
+
+    private final EventLoopGroup group;
+    private final InetSocketAddress nameServer;
+    private final RttEstimator rtt;
+    private final int maxRetries;
+    private final QuerySocket[] sockets;
+    private final AtomicInteger nextSocket = new AtomicInteger();
+    private volatile TokenBucket rateLimit; // Giới hạn truy vấn/giây tới resolver này, null = không giới hạn
+    private volatile boolean recursionDesired = true; // false: hỏi thẳng nameserver có thẩm quyền (RD=0)
+
+    public NettyDnsResolver(InetSocketAddress nameServer, int threads, int socketCount, long timeoutMs) throws InterruptedException {
+        this(nameServer, threads, socketCount, timeoutMs, DEFAULT_RETRIES);
+    }
+
+    /**
+     * @param timeoutMs  trần timeout của một lần gửi (timeout thực tế theo RTT ước lượng)
+     * @param maxRetries số lần gửi lại khi timeout
+     */
+    public NettyDnsResolver(InetSocketAddress nameServer, int threads, int socketCount, long timeoutMs, int maxRetries)
+            throws InterruptedException {
+        this.nameServer = nameServer;
+        this.rtt = RttEstimator.forDns(timeoutMs);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.group = new NioEventLoopGroup(threads);
+        this.sockets = new QuerySocket[socketCount];
+        try {
+            for (int i = 0; i < socketCount; i++) {
+                QuerySocket socket = new QuerySocket();
+                Bootstrap b = new Bootstrap();
+                b.group(group)
+                 .channel(NioDatagramChannel.class)
+                 .option(ChannelOption.SO_RCVBUF, SOCKET_BUFFER_SIZE)
+                 .option(ChannelOption.SO_SNDBUF, SOCKET_BUFFER_SIZE)
+                 .handler(new ChannelInitializer<NioDatagramChannel>() {
+                     @Override
+                     protected void initChannel(NioDatagramChannel ch) {
+                         ch.pipeline().addLast(new DatagramDnsQueryEncoder(), new DatagramDnsResponseDecoder(), socket);
+                     }
+                 });
+                socket.channel = b.bind(0).sync().channel();
+                sockets[i] = socket;
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            group.shutdownGracefully();
+            throw e;
+        }
+    }
+
+    /**
+     * Lấy địa chỉ DNS server mặc định của hệ điều hành (/etc/resolv.conf...).
+     */
+    public static InetSocketAddress systemNameServer() {
+        return DnsServerAddressStreamProviders.platformDefault().nameServerAddressStream("").next();
+    }
+
+    @Override
+    public CompletableFuture<DnsAnswer> resolve(String hostname) {
+        int idx = (nextSocket.getAndIncrement() & Integer.MAX_VALUE) % sockets.length;
+        return sockets[idx].query(hostname);
+    }
+
+    /**
+     * Đặt giới hạn truy vấn/giây tới resolver (null = bỏ giới hạn). Truy vấn mới chưa có token
+     * được hẹn gửi sau trên event loop thay vì chặn thread gọi; lần gửi lại không phải chờ.
+     */
+    public void setRateLimit(TokenBucket bucket) {
+        this.rateLimit = bucket;
+    }
+
+    public TokenBucket getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Bật/tắt cờ RD của truy vấn. Tắt khi hỏi thẳng nameserver có thẩm quyền của vùng: server trả lời
+     * từ dữ liệu vùng của nó, không đệ quy; khi đó CNAME ra ngoài vùng và điểm ủy quyền (referral
+     * cho chính tên được hỏi) cũng được tính là tên tồn tại.
+     */
+    public void setRecursionDesired(boolean recursionDesired) {
+        this.recursionDesired = recursionDesired;
+    }
+
+    /**
+     * RTT ước lượng tới resolver (SRTT, RTTVAR, RTO hiện tại).
+     */
+    public RttEstimator getRtt() {
+        return rtt;
+    }
+
+    @Override
+    public void close() {
+        for (QuerySocket socket : sockets) {
+            if (socket != null) {
+                socket.failAll();
+            }
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Chuyển DnsResponse thành DnsAnswer (đọc bản ghi A/AAAA và CNAME đầu tiên ở phần ANSWER).
+     * authoritative = true: câu trả lời không đệ quy, tên chỉ có CNAME hoặc là điểm ủy quyền vẫn là tên tồn tại.
+     */
+    static DnsAnswer toAnswer(String name, DnsResponse response, boolean authoritative) {
+        DnsResponseCode code = response.code();
+        if (DnsResponseCode.NXDOMAIN.equals(code)) {
+            return new DnsAnswer(name, DnsAnswer.Status.NXDOMAIN, null, negativeTtl(response));
+        }
+        if (!DnsResponseCode.NOERROR.equals(code)) {
+            return DnsAnswer.of(name, DnsAnswer.Status.SERVFAIL);
+        }
+        List<String> ips = new ArrayList<>();
+        String cname = null;
+        long ttl = Long.MAX_VALUE;
+        int count = response.count(DnsSection.ANSWER);
+        for (int i = 0; i < count; i++) {
+            DnsRecord record = response.recordAt(DnsSection.ANSWER, i);
+            if (!(record instanceof DnsRawRecord)) continue;
+            if (record.type() == DnsRecordType.CNAME && cname == null) {
+                // Netty đã giải nén tên trong RDATA của CNAME
+                cname = DnsAnswer.normalize(DefaultDnsRecordDecoder.decodeName(((DnsRawRecord) record).content().duplicate()));
+                continue;
+            }
+            if (record.type() != DnsRecordType.A && record.type() != DnsRecordType.AAAA) continue;
+            ByteBuf content = ((DnsRawRecord) record).content();
+            byte[] addr = new byte[content.readableBytes()];
+            content.getBytes(content.readerIndex(), addr);
+            try {
+                ips.add(InetAddress.getByAddress(addr).getHostAddress());
+                ttl = Math.min(ttl, record.timeToLive());
+            } catch (Exception ignored) {
+                // Bản ghi sai độ dài - bỏ qua
+            }
+        }
+        if (ips.isEmpty() && authoritative) {
+            if (cname != null) return DnsAnswer.found(name, ips, 0, cname); // Đích nằm ngoài vùng, server không đi tiếp
+            long delegation = delegationTtl(name, response);
+            if (delegation >= 0) return DnsAnswer.found(name, ips, delegation);
+        }
+        if (ips.isEmpty()) {
+            return new DnsAnswer(name, DnsAnswer.Status.NODATA, null, negativeTtl(response));
+        }
+        return DnsAnswer.found(name, ips, ttl, cname);
+    }
+
+    /**
+     * TTL của câu trả lời phủ định (RFC 2308): min(TTL của SOA, trường MINIMUM của SOA) ở phần AUTHORITY.
+     * Không có SOA thì trả về 0 (không được cache).
+     */
+    static long negativeTtl(DnsResponse response) {
+        int count = response.count(DnsSection.AUTHORITY);
+        for (int i = 0; i < count; i++) {
+            DnsRecord record = response.recordAt(DnsSection.AUTHORITY, i);
+            if (record.type() != DnsRecordType.SOA || !(record instanceof DnsRawRecord)) continue;
+            ByteBuf content = ((DnsRawRecord) record).content();
+            if (content.readableBytes() < 20) continue;
+            // MINIMUM là 4 byte cuối của RDATA, sau MNAME/RNAME/SERIAL/REFRESH/RETRY/EXPIRE
+            long minimum = content.getUnsignedInt(content.writerIndex() - 4);
+            return Math.min(record.timeToLive(), minimum);
+        }
+        return 0;
+    }
+
+    /**
+     * TTL của bản ghi NS ở phần AUTHORITY có chủ đúng là name (server chuyển tiếp xuống vùng con), -1 nếu không có.
+     */
+    private static long delegationTtl(String name, DnsResponse response) {
+        String owner = DnsAnswer.normalize(name);
+        int count = response.count(DnsSection.AUTHORITY);
+        for (int i = 0; i < count; i++) {
+            DnsRecord record = response.recordAt(DnsSection.AUTHORITY, i);
+            if (record.type() == DnsRecordType.NS && owner.equals(DnsAnswer.normalize(record.name()))) {
+                return record.timeToLive();
+            }
+        }
+        return -1;
+    }
+
+    private static final class PendingQuery {
+        final String name;
+        final String questionName;
+        final CompletableFuture<DnsAnswer> future = new CompletableFuture<>();
+        ScheduledFuture<?> timeout;
+        int attempts;
+        long sentAtNanos;
+        boolean paced;      // Đã giữ chỗ token cho lần gửi đang hẹn
+        DnsRecordType type = DnsRecordType.A; // Đổi sang AAAA khi A trả về NODATA
+
+        PendingQuery(String name) {
+            this.name = name;
+            String lower = name.toLowerCase();
+            this.questionName = lower.endsWith(".") ? lower : lower + ".";
+        }
+    }
+
+    /**
+     * Một socket UDP với bảng truy vấn đang chờ đánh chỉ số theo transaction ID.
+     */
+    @ChannelHandler.Sharable
+    private final class QuerySocket extends SimpleChannelInboundHandler<DatagramDnsResponse> {
+        private final AtomicReferenceArray<PendingQuery> pending = new AtomicReferenceArray<>(ID_SPACE);
+        private final AtomicInteger nextId = new AtomicInteger(ThreadLocalRandom.current().nextInt(ID_SPACE));
+        private Channel channel;
+
+        CompletableFuture<DnsAnswer> query(String hostname) {
+            PendingQuery p = new PendingQuery(hostname);
+            int id = -1;
+            for (int i = 0; i < ID_SPACE; i++) {
+                int candidate = nextId.getAndIncrement() & 0xFFFF;
+                if (pending.compareAndSet(candidate, null, p)) {
+                    id = candidate;
+                    break;
+                }
+            }
+            if (id < 0) {
+                // Hết transaction ID trên socket này
+                p.future.complete(DnsAnswer.of(hostname, DnsAnswer.Status.ERROR));
+                return p.future;
+            }
+            final int queryId = id;
+            // Bên gọi huỷ future (hết hạn scan) thì giải phóng transaction ID ngay
+            p.future.whenComplete((answer, err) -> {
+                if (p.future.isCancelled() && pending.compareAndSet(queryId, p, null) && p.timeout != null) {
+                    p.timeout.cancel(false);
+                }
+            });
+            channel.eventLoop().execute(() -> send(p, queryId));
+            return p.future;
+        }
+
+        /**
+         * Gửi (hoặc gửi lại với cùng transaction ID) và hẹn timeout theo RTO hiện tại.
+         * Chạy trên event loop của socket nên không tranh chấp với channelRead0.
+         */
+        private void send(PendingQuery p, int queryId) {
+            if (pending.get(queryId) != p) return; // Đã có trả lời hoặc bị huỷ
+            TokenBucket bucket = rateLimit;
+            if (bucket != null && !p.paced) {
+                // Giữ chỗ token rồi hẹn gửi đúng lượt; lần gửi lại đi ngay và ghi nợ cho lượt sau
+                p.paced = true;
+                long wait = bucket.reserve();
+                if (wait > 0 && p.attempts == 0) {
+                    channel.eventLoop().schedule(() -> send(p, queryId), wait, TimeUnit.NANOSECONDS);
+                    return;
+                }
+            }
+            p.paced = false;
+            p.attempts++;
+            p.sentAtNanos = System.nanoTime();
+            p.timeout = channel.eventLoop().schedule(() -> {
+                if (pending.get(queryId) != p) return;
+                if (p.attempts <= maxRetries) {
+                    send(p, queryId);
+                } else if (pending.compareAndSet(queryId, p, null)) {
+                    p.future.complete(DnsAnswer.of(p.name, DnsAnswer.Status.TIMEOUT).withTiming(0, p.attempts, nameServer));
+                }
+            }, rtt.timeoutNanos(p.attempts), TimeUnit.NANOSECONDS);
+
+            DatagramDnsQuery query = new DatagramDnsQuery(null, nameServer, queryId);
+            query.setRecursionDesired(recursionDesired);
+            query.addRecord(DnsSection.QUESTION, new DefaultDnsQuestion(p.name, p.type));
+            channel.writeAndFlush(query).addListener(f -> {
+                if (!f.isSuccess() && pending.compareAndSet(queryId, p, null)) {
+                    p.timeout.cancel(false);
+                    p.future.complete(DnsAnswer.of(p.name, DnsAnswer.Status.ERROR));
+                }
+            });
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, DatagramDnsResponse response) {
+            if (!nameServer.equals(response.sender())) return;
+            int id = response.id();
+            PendingQuery p = pending.get(id);
+            if (p == null) return;
+            DnsRecord question = response.recordAt(DnsSection.QUESTION);
+            if (question == null || !p.questionName.equalsIgnoreCase(question.name()) || question.type() != p.type) return;
+            long rttNanos = System.nanoTime() - p.sentAtNanos;
+            DnsAnswer answer = toAnswer(p.name, response, !recursionDesired);
+            if (answer.status == DnsAnswer.Status.NODATA && p.type == DnsRecordType.A) {
+                // Không có IPv4: hỏi tiếp AAAA trên cùng transaction ID (vẫn giữ chỗ trong bảng)
+                p.timeout.cancel(false);
+                if (p.attempts == 1) {
+                    rtt.sample(rttNanos);
+                }
+                p.type = DnsRecordType.AAAA;
+                p.attempts = 0;
+                send(p, id);
+                return;
+            }
+            if (pending.compareAndSet(id, p, null)) {
+                p.timeout.cancel(false);
+                if (p.attempts == 1) {
+                    rtt.sample(rttNanos);
+                }
+                p.future.complete(answer.withTiming(rttNanos, p.attempts, nameServer));
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            // Gói tin hỏng không được làm chết socket, truy vấn sẽ timeout
+        }
+
+        void failAll() {
+            for (int i = 0; i < ID_SPACE; i++) {
+                PendingQuery p = pending.getAndSet(i, null);
+                if (p != null) {
+                    if (p.timeout != null) p.timeout.cancel(false);
+                    p.future.complete(DnsAnswer.of(p.name, DnsAnswer.Status.ERROR));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package server.scanner;
+
+import io.netty.handler.codec.dns.DnsRecordType;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Liệt kê vùng ký DNSSEC dùng NSEC thường: mỗi bản ghi NSEC chỉ ra tên tồn tại kế tiếp theo thứ tự
+ * chuẩn, nên đi theo chuỗi là có mọi tên trong vùng với khoảng một truy vấn mỗi tên.
+ * <p>
+ * Để không phải chờ từng bước một, chuỗi được đi từ nhiều điểm cùng lúc: đỉnh vùng và vài tên mồi
+ * rải đều bảng chữ cái (0, 3, 6... x). Câu trả lời cho tên mồi (có hoặc không tồn tại) đều kèm bản ghi
+ * NSEC bao quanh nó, mở ra một đoạn chuỗi mới; mỗi đoạn đi tiếp độc lập tới khi gặp tên đã biết.
+ * Đoạn dài (nhiều tên cùng tiền tố) được chia nhỏ dần bằng tên mồi nhảy cóc phía trước tên vừa học,
+ * để một gói bị mất chỉ làm chậm một đoạn ngắn thay vì cả phần còn lại của chuỗi.
+ * Vùng dùng NSEC3 (tên đã băm) thì không đi được, trả về kind = NSEC3 để quay lại dò wordlist.
+ */
+public class NsecWalker {
+    private static final String SEED_CHARS = "0369cfilorux";
+    private static final int RETRIES = 2;      // Số lần hỏi lại khi mất gói (timeout) trước khi bỏ qua tên
+    private static final int JUMP_EVERY = 32;  // Cứ mỗi chừng ấy tên mới thì rải thêm tên mồi phía trước
+
+    public enum Kind { NSEC, NSEC3, UNSIGNED }
+
+    /**
+     * Kết quả: loại chứng minh không tồn tại của vùng, các tên tìm được (không gồm đỉnh vùng và tên wildcard)
+     * và chuỗi đã khép kín hay chưa (bị dừng do timeout, giới hạn hoặc server không trả NSEC).
+     */
+    public static final class Result {
+        public final Kind kind;
+        public final List<String> names;
+        public final boolean complete;
+        public final int queries;
+
+        Result(Kind kind, List<String> names, boolean complete, int queries) {
+            this.kind = kind;
+            this.names = names;
+            this.complete = complete;
+            this.queries = queries;
+        }
+    }
+
+    private final DnsQueryClient client;
+    private final List<InetSocketAddress> servers;
+    private final String apex;
+    private final int maxNames;
+    private final Map<String, String> next = new HashMap<>(); // Chủ NSEC -> tên kế tiếp
+    private final Set<String> requested = new HashSet<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private int outstanding;
+    private boolean sawNsec3;
+    private boolean broken; // Có đoạn không đi tiếp được
+    private boolean done;   // run() đã trả kết quả: trả lời về muộn không được gửi thêm truy vấn
+
+    private NsecWalker(DnsQueryClient client, List<InetSocketAddress> servers, String zone, int maxNames) {
+        this.client = client;
+        this.servers = servers.isEmpty() ? List.of(client.getServer()) : servers;
+        this.apex = DnsQueryClient.normalize(zone);
+        this.maxNames = maxNames;
+    }
+
+    /**
+     * Đi chuỗi NSEC của zone qua các server (nameserver có thẩm quyền; rỗng = resolver của client),
+     * tối đa maxNames tên hoặc tới khi quá timeoutMs.
+     */
+    public static Result walk(DnsQueryClient client, List<InetSocketAddress> servers, String zone, int maxNames, long timeoutMs) {
+        NsecWalker walker = new NsecWalker(client, servers, zone, maxNames);
+        return walker.run(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    private Result run(long deadlineNanos) {
+        synchronized (this) {
+            request(apex, false);
+            for (char c : SEED_CHARS.toCharArray()) {
+                request(c + "." + apex, false);
+            }
+            try {
+                while (outstanding > 0) {
+                    long remaining = deadlineNanos - System.nanoTime();
+                    if (remaining <= 0) {
+                        broken = true;
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                broken = true;
+            }
+            done = true;
+            if (next.isEmpty()) {
+                return new Result(sawNsec3 ? Kind.NSEC3 : Kind.UNSIGNED, List.of(), false, queries.get());
+            }
+            Set<String> names = new LinkedHashSet<>();
+            for (Map.Entry<String, String> edge : next.entrySet()) {
+                addName(names, edge.getKey());
+                addName(names, edge.getValue());
+            }
+            List<String> sorted = new ArrayList<>(names);
+            sorted.sort(null);
+            return new Result(Kind.NSEC, sorted, !broken && isClosed(), queries.get());
+        }
+    }
+
+    private void addName(Set<String> names, String name) {
+        if (name.endsWith("." + apex) && !name.startsWith("*.")) names.add(name);
+    }
+
+    /**
+     * Mọi tên kế tiếp đều đã là chủ của một NSEC đã biết: chuỗi khép kín.
+     */
+    private boolean isClosed() {
+        for (String target : next.values()) {
+            if (!next.containsKey(target)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hỏi NSEC của name (gọi khi đang giữ khóa). successor = true là lần hỏi lại bằng tên ngay sau name
+     * (name là điểm ủy quyền, server trả về referral thay vì NSEC của nó).
+     */
+    private void request(String name, boolean successor) {
+        if (done) return;
+        if (!requested.add(successor ? name + "/" : name)) return;
+        if (next.size() >= maxNames) {
+            broken = true;
+            return;
+        }
+        String query = successor ? successorOf(name) : name;
+        if (query == null) {
+            broken = true;
+            return;
+        }
+        send(name, query, successor, 0);
+    }
+
+    private void send(String name, String query, boolean successor, int attempt) {
+        if (done) return;
+        outstanding++;
+        InetSocketAddress server = servers.get(queries.getAndIncrement() % servers.size());
+        client.query(server, query, DnsRecordType.NSEC, true).whenComplete((reply, err) -> {
+            synchronized (this) {
+                outstanding--;
+                if (done) return; // Hết hạn đi chuỗi, kết quả đã trả về
+                if (reply != null) learn(reply);
+                if (!next.containsKey(name)) {
+                    if (reply == null && attempt < RETRIES) {
+                        send(name, query, successor, attempt + 1); // Mất gói: hỏi lại chính tên đó
+                    } else if (successor) {
+                        broken = true; // Đoạn chuỗi dừng ở đây
+                    } else if (isInChain(name)) {
+                        // Tên có thật nhưng không nhận được NSEC của nó (điểm ủy quyền): hỏi tên ngay sau nó
+                        request(name, true);
+                    }
+                }
+                notifyAll();
+            }
+        });
+    }
+
+    /**
+     * Tên đã xuất hiện như tên kế tiếp của một NSEC (chắc chắn tồn tại trong vùng).
+     */
+    private boolean isInChain(String name) {
+        return next.containsValue(name);
+    }
+
+    /**
+     * Tên không tồn tại đứng ngay sau name theo thứ tự chuẩn (cùng cha): nhãn đầu thêm '-'.
+     */
+    private String successorOf(String name) {
+        if (name.equals(apex)) return null;
+        int dot = name.indexOf('.');
+        if (dot <= 0 || dot >= 63) return null;
+        return name.substring(0, dot) + "-" + name.substring(dot);
+    }
+
+    /**
+     * Ghi nhận mọi NSEC trong câu trả lời, hỏi tiếp các tên kế tiếp chưa biết.
+     */
+    private void learn(DnsQueryClient.Reply reply) {
+        List<DnsQueryClient.Record> records = new ArrayList<>(reply.answers);
+        records.addAll(reply.authorities);
+        for (DnsQueryClient.Record record : records) {
+            if (record.type.equals(DnsRecordType.NSEC3)) {
+                sawNsec3 = true;
+            } else if (record.type.equals(DnsRecordType.NSEC) && inZone(record.name)) {
+                String target;
+                try {
+                    target = record.targetName();
+                } catch (RuntimeException e) {
+                    continue; // RDATA hỏng
+                }
+                if (next.putIfAbsent(record.name, target) == null && !target.equals(apex) && inZone(target)
+                        && !next.containsKey(target)) {
+                    request(target, false);
+                    if (next.size() % JUMP_EVERY == 0) jumpAhead(target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rải tên mồi đứng sau mọi tên cùng tiền tố với name: với nhãn "h1021" là "h1022", "h103", "h11", "h2", "i".
+     * Đoạn chuỗi dài vì thế được chia cho nhiều truy vấn song song.
+     */
+    private void jumpAhead(String name) {
+        int dot = name.indexOf('.');
+        if (dot <= 0 || name.equals(apex)) return;
+        String label = name.substring(0, dot);
+        String parent = name.substring(dot);
+        for (int len = label.length(); len >= 1; len--) {
+            char c = label.charAt(len - 1);
+            if (c >= 'z' || c == '-') continue; // Không tăng được, hoặc thành dấu chấm
+            request(label.substring(0, len - 1) + (char) (c + 1) + parent, false);
+        }
+    }
+
+    private boolean inZone(String name) {
+        return name.equals(apex) || name.endsWith("." + apex);
+    }
+}
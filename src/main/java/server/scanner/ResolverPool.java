@@ -0,0 +1,342 @@
+package server.scanner;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Nhóm nhiều resolver upstream: mỗi truy vấn chọn resolver theo độ trễ có trọng số
+ * (so hai resolver ngẫu nhiên, lấy cái có RTT x số truy vấn đang chờ nhỏ hơn), chấm điểm
+ * từng resolver theo RTT, tỉ lệ SERVFAIL và timeout. Resolver xấu bị loại tạm thời rồi
+ * được thử lại bằng một truy vấn thăm dò; truy vấn lỗi được hỏi lại ở resolver khác.
+ * Có thể bật hedging: truy vấn chưa có trả lời sau p95 độ trễ của resolver thì gửi thêm
+ * một bản tới resolver khác và lấy câu trả lời về trước, số truy vấn thêm không vượt ngân sách.
+ */
+public class ResolverPool implements DnsResolver {
+    private static final double EWMA_ALPHA = 0.02;
+    private static final double EJECT_FAILURE_RATE = 0.3;   // Trên 30% SERVFAIL/timeout thì loại
+    private static final int MIN_SAMPLES = 50;               // Số mẫu tối thiểu trước khi chấm điểm
+    private static final long BASE_EJECT_MS = 5000;
+    private static final long MAX_EJECT_MS = 60000;
+    private static final int MAX_FAILOVERS = 1;              // Số lần chuyển sang resolver khác cho một tên
+    private static final double HEDGE_QUANTILE = 0.95;
+    private static final int HEDGE_MIN_SAMPLES = 200;        // Chưa đủ mẫu thì chưa biết p95, không hedge
+    private static final int HEDGE_BURST = 20;               // Cho phép vượt ngân sách một ít lúc đầu scan
+    private static final int LATENCY_WINDOW = 5000;
+
+    private final List<Upstream> upstreams = new ArrayList<>();
+    private final double hedgeBudget;
+    private final HashedWheelTimer hedgeTimer;
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param threads    số event-loop thread cho mỗi resolver
+     * @param sockets    số socket UDP cho mỗi resolver
+     * @param timeoutMs  trần timeout một lần gửi
+     * @param maxRetries tổng số lần gửi lại: một phần trên cùng resolver, lần cuối ở resolver khác
+     * @param hedgeBudget tỉ lệ truy vấn hedge tối đa so với truy vấn thường (0.05 = thêm 5%), 0 = tắt
+     */
+    public ResolverPool(List<InetSocketAddress> servers, int threads, int sockets, long timeoutMs, int maxRetries,
+                        double hedgeBudget) throws InterruptedException {
+        if (servers.isEmpty()) throw new IllegalArgumentException("Cần ít nhất một resolver");
+        this.hedgeBudget = servers.size() > 1 ? Math.max(0, hedgeBudget) : 0;
+        // Timer bánh xe 1ms: rẻ khi có hàng chục nghìn truy vấn đang chờ, hầu hết bị huỷ trước khi tới hạn
+        this.hedgeTimer = this.hedgeBudget > 0 ? new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 1024) : null;
+        try {
+            for (InetSocketAddress server : servers) {
+                upstreams.add(new Upstream(server, new NettyDnsResolver(server, threads, sockets, timeoutMs, Math.max(0, maxRetries - 1))));
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            closeUpstreams();
+            throw e;
+        }
+    }
+
+    /**
+     * Trạng thái và điểm sức khỏe của một resolver.
+     */
+    private static final class Upstream {
+        final InetSocketAddress address;
+        final NettyDnsResolver resolver;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final LatencyHistogram histogram = new LatencyHistogram(LATENCY_WINDOW);
+        double latencyNanos;        // RTT trượt
+        double failureRate;         // Tỉ lệ SERVFAIL + timeout trượt
+        double servfailRate;
+        double timeoutRate;
+        long samples;
+        long ejectedUntilMillis;    // > 0: đang bị loại tới thời điểm này
+        long ejectMillis = BASE_EJECT_MS;
+        boolean probing;            // Đang có truy vấn thăm dò sau khi hết hạn loại
+
+        Upstream(InetSocketAddress address, NettyDnsResolver resolver) {
+            this.address = address;
+            this.resolver = resolver;
+        }
+
+        synchronized boolean isAvailable() {
+            return ejectedUntilMillis == 0;
+        }
+
+        /**
+         * Hết hạn loại thì cho một truy vấn thăm dò đi qua.
+         */
+        synchronized boolean tryStartProbe(long now) {
+            if (ejectedUntilMillis == 0 || probing || now < ejectedUntilMillis) return false;
+            probing = true;
+            return true;
+        }
+
+        synchronized void abortProbe() {
+            probing = false;
+        }
+
+        synchronized double score() {
+            // Chưa có mẫu (mới khởi động hoặc chưa trả lời lần nào) thì dùng timeout hiện tại của resolver
+            double latency = latencyNanos > 0 ? latencyNanos : resolver.getRtt().timeoutNanos(1);
+            TokenBucket bucket = resolver.getRateLimit();
+            if (bucket != null) latency += bucket.delayNanos(); // Resolver đang phải xếp hàng chờ token
+            return latency * (inFlight.get() + 1) / Math.max(0.05, 1 - failureRate);
+        }
+
+        synchronized void record(DnsAnswer answer, long now) {
+            boolean servfail = answer.status == DnsAnswer.Status.SERVFAIL;
+            boolean timeout = answer.status == DnsAnswer.Status.TIMEOUT;
+            if (probing) {
+                probing = false;
+                if (servfail || timeout) {
+                    // Thăm dò thất bại: loại tiếp với thời gian gấp đôi
+                    ejectMillis = Math.min(MAX_EJECT_MS, ejectMillis * 2);
+                    ejectedUntilMillis = now + ejectMillis;
+                    return;
+                }
+                ejectedUntilMillis = 0;
+                failureRate = servfailRate = timeoutRate = 0;
+                samples = 0;
+                System.out.println("♻️ Resolver " + address + " hoạt động lại");
+            }
+            samples++;
+            servfailRate += EWMA_ALPHA * ((servfail ? 1 : 0) - servfailRate);
+            timeoutRate += EWMA_ALPHA * ((timeout ? 1 : 0) - timeoutRate);
+            failureRate = servfailRate + timeoutRate;
+            if (answer.rttNanos > 0 && answer.attempts == 1) {
+                histogram.record(answer.rttNanos);
+                latencyNanos = latencyNanos == 0 ? answer.rttNanos : latencyNanos + EWMA_ALPHA * (answer.rttNanos - latencyNanos);
+            }
+            if (ejectedUntilMillis == 0 && samples >= MIN_SAMPLES && failureRate > EJECT_FAILURE_RATE) {
+                ejectedUntilMillis = now + ejectMillis;
+                System.out.println("⚠️ Loại tạm resolver " + address + " trong " + ejectMillis + " ms ("
+                        + String.format("SERVFAIL %.0f%%, timeout %.0f%%", servfailRate * 100, timeoutRate * 100) + ")");
+            } else if (ejectedUntilMillis == 0 && failureRate < EJECT_FAILURE_RATE / 4) {
+                ejectMillis = BASE_EJECT_MS; // Ổn định trở lại thì lần loại sau bắt đầu từ mức cơ bản
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return address + " " + (ejectedUntilMillis == 0 ? "OK" : "loại")
+                    + String.format(" rtt=%.1fms servfail=%.1f%% timeout=%.1f%%",
+                    latencyNanos / 1_000_000.0, servfailRate * 100, timeoutRate * 100)
+                    + String.format(" p95=%.1fms", histogram.quantile(0.95) / 1_000_000.0);
+        }
+    }
+
+    /**
+     * Chọn resolver: ưu tiên thăm dò resolver hết hạn loại, sau đó so hai resolver ngẫu nhiên
+     * còn tốt (power of two choices). Tất cả bị loại thì dùng resolver sắp hết hạn loại nhất.
+     */
+    private Upstream pick(Upstream exclude) {
+        return pick(exclude, true);
+    }
+
+    /**
+     * @param probe false: không mở lượt thăm dò (người gọi có thể không gửi, lượt thăm dò sẽ bị treo)
+     */
+    private Upstream pick(Upstream exclude, boolean probe) {
+        long now = System.currentTimeMillis();
+        for (Upstream u : upstreams) {
+            if (probe && u != exclude && u.tryStartProbe(now)) return u;
+        }
+        List<Upstream> healthy = new ArrayList<>(upstreams.size());
+        for (Upstream u : upstreams) {
+            if (u != exclude && u.isAvailable()) healthy.add(u);
+        }
+        if (healthy.isEmpty()) {
+            Upstream best = null;
+            for (Upstream u : upstreams) {
+                if (u == exclude) continue;
+                synchronized (u) {
+                    if (best == null || u.ejectedUntilMillis < best.ejectedUntilMillis) best = u;
+                }
+            }
+            return best != null ? best : exclude;
+        }
+        if (healthy.size() == 1) return healthy.get(0);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Upstream a = healthy.get(random.nextInt(healthy.size()));
+        Upstream b = healthy.get(random.nextInt(healthy.size() - 1));
+        if (b == a) b = healthy.get(healthy.size() - 1);
+        return a.score() <= b.score() ? a : b;
+    }
+
+    @Override
+    public CompletableFuture<DnsAnswer> resolve(String hostname) {
+        CompletableFuture<DnsAnswer> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<DnsAnswer>> current = new AtomicReference<>();
+        AtomicReference<CompletableFuture<DnsAnswer>> hedge = new AtomicReference<>();
+        Upstream first = pick(null);
+        queries.incrementAndGet();
+        Timeout hedgeTimeout = scheduleHedge(hostname, first, result, hedge);
+        result.whenComplete((answer, err) -> {
+            if (hedgeTimeout != null) hedgeTimeout.cancel();
+            // Bên gọi huỷ (hết hạn scan) thì huỷ luôn truy vấn đang chạy để giải phóng transaction ID
+            if (result.isCancelled()) {
+                cancel(current.get());
+                cancel(hedge.get());
+            }
+        });
+        attempt(hostname, first, 1, 0, result, current);
+        return result;
+    }
+
+    private static void cancel(CompletableFuture<DnsAnswer> future) {
+        if (future != null) future.cancel(false);
+    }
+
+    /**
+     * Hẹn gửi bản hedge sau p95 độ trễ của resolver đầu tiên, null nếu tắt hoặc chưa đủ mẫu.
+     * Truy vấn thua vẫn chạy tới cùng để resolver chậm vẫn được ghi nhận độ trễ thật.
+     */
+    private Timeout scheduleHedge(String hostname, Upstream first, CompletableFuture<DnsAnswer> result,
+                                  AtomicReference<CompletableFuture<DnsAnswer>> hedge) {
+        if (hedgeTimer == null || first.histogram.count() < HEDGE_MIN_SAMPLES) return null;
+        long delay = first.histogram.quantile(HEDGE_QUANTILE);
+        return hedgeTimer.newTimeout(t -> {
+            if (result.isDone() || hedges.get() >= hedgeBudget * queries.get() + HEDGE_BURST) return;
+            // Hedge có thể bị bỏ giữa chừng (hết token), nên không được mở lượt thăm dò resolver bị loại
+            Upstream second = pick(first, false);
+            if (second == first) return;
+            TokenBucket bucket = second.resolver.getRateLimit();
+            if (bucket != null && bucket.delayNanos() > 0) return; // Hedge không được xếp hàng sau giới hạn
+            hedges.incrementAndGet();
+            CompletableFuture<DnsAnswer> future = query(second, hostname);
+            hedge.set(future);
+            if (result.isCancelled()) future.cancel(false);
+            future.thenAccept(answer -> {
+                if (answer.isDefinitive() && result.complete(answer)) hedgeWins.incrementAndGet();
+            });
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Hỏi upstream; SERVFAIL/timeout thì hỏi lại ở resolver khác (như "rotate" của resolv.conf)
+     * thay vì dồn hết số lần gửi lại vào một resolver có thể đã chết. sent là số lần đã gửi ở các resolver
+     * trước, cộng với số lần gửi của resolver cuối thành attempts của câu trả lời.
+     */
+    private void attempt(String hostname, Upstream upstream, int attempt, int sent, CompletableFuture<DnsAnswer> result,
+                         AtomicReference<CompletableFuture<DnsAnswer>> current) {
+        CompletableFuture<DnsAnswer> future = query(upstream, hostname);
+        current.set(future);
+        if (result.isCancelled()) future.cancel(false);
+        future.whenComplete((answer, err) -> {
+            if (answer == null) {
+                result.complete(DnsAnswer.of(hostname, DnsAnswer.Status.ERROR));
+            } else if (!answer.isDefinitive() && answer.status != DnsAnswer.Status.ERROR
+                    && attempt <= MAX_FAILOVERS && !result.isDone()) {
+                attempt(hostname, pick(upstreams.size() > 1 ? upstream : null), attempt + 1, sent + answer.attempts,
+                        result, current);
+            } else {
+                result.complete(answer.withTiming(answer.rttNanos, sent + answer.attempts, answer.server));
+            }
+        });
+    }
+
+    private CompletableFuture<DnsAnswer> query(Upstream upstream, String hostname) {
+        upstream.inFlight.incrementAndGet();
+        CompletableFuture<DnsAnswer> future = upstream.resolver.resolve(hostname);
+        future.whenComplete((answer, err) -> {
+            upstream.inFlight.decrementAndGet();
+            if (answer != null && answer.status != DnsAnswer.Status.ERROR) {
+                upstream.record(answer, System.currentTimeMillis());
+            } else {
+                upstream.abortProbe(); // Bị huỷ/lỗi cục bộ: không kết luận được, cho thăm dò lại
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Gán giới hạn truy vấn/giây cho từng resolver (hàm trả null = không giới hạn).
+     */
+    public void setRateLimits(Function<InetSocketAddress, TokenBucket> bucketFor) {
+        for (Upstream u : upstreams) {
+            u.resolver.setRateLimit(bucketFor.apply(u.address));
+        }
+    }
+
+    /**
+     * Bật/tắt cờ RD ở mọi resolver (tắt khi nhóm là các nameserver có thẩm quyền của một vùng).
+     */
+    public void setRecursionDesired(boolean recursionDesired) {
+        for (Upstream u : upstreams) {
+            u.resolver.setRecursionDesired(recursionDesired);
+        }
+    }
+
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    public int size() {
+        return upstreams.size();
+    }
+
+    /**
+     * Tình trạng từng resolver (RTT, p95, tỉ lệ SERVFAIL/timeout, có bị loại không) và số truy vấn hedge.
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Upstream u : upstreams) {
+            lines.add(u.toString());
+        }
+        if (hedgeTimer != null) {
+            long total = queries.get();
+            lines.add(String.format("hedge: %d truy vấn thêm (%.1f%%), %d lần về trước", hedges.get(),
+                    total == 0 ? 0 : hedges.get() * 100.0 / total, hedgeWins.get()));
+        }
+        return lines;
+    }
+
+    @Override
+    public void close() {
+        closeUpstreams();
+    }
+
+    /**
+     * Dừng timer hedge và đóng mọi resolver đã tạo (dùng cả khi constructor lỗi giữa chừng).
+     */
+    private void closeUpstreams() {
+        if (hedgeTimer != null) {
+            hedgeTimer.stop();
+        }
+        for (Upstream u : upstreams) {
+            u.resolver.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package server.scanner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ước lượng RTT tới một resolver theo RFC 6298 (như RTO của TCP):
+ * SRTT và RTTVAR trượt, timeout = SRTT + 4 * RTTVAR, kẹp trong [minRto, maxRto].
+ * Chỉ lấy mẫu từ truy vấn gửi một lần (thuật toán Karn), truy vấn gửi lại không rõ
+ * response thuộc lần gửi nào.
+ */
+public class RttEstimator {
+    private static final double ALPHA = 0.125;
+    private static final double BETA = 0.25;
+    private static final long DNS_INITIAL_RTO_MS = 1000; // Chưa có mẫu nào: 1 giây như RFC 6298
+    private static final long DNS_MIN_RTO_MS = 50;
+
+    private final long minRtoNanos;
+    private final long maxRtoNanos;
+    private double srttNanos;
+    private double rttVarNanos;
+    private long rtoNanos;
+
+    public RttEstimator(long initialRtoNanos, long minRtoNanos, long maxRtoNanos) {
+        this.minRtoNanos = minRtoNanos;
+        this.maxRtoNanos = Math.max(minRtoNanos, maxRtoNanos);
+        this.rtoNanos = clamp(initialRtoNanos);
+    }
+
+    /**
+     * Bộ ước lượng cho truy vấn DNS, timeout không vượt quá maxRtoMs.
+     */
+    public static RttEstimator forDns(long maxRtoMs) {
+        return new RttEstimator(TimeUnit.MILLISECONDS.toNanos(DNS_INITIAL_RTO_MS),
+                TimeUnit.MILLISECONDS.toNanos(Math.min(DNS_MIN_RTO_MS, maxRtoMs)), TimeUnit.MILLISECONDS.toNanos(maxRtoMs));
+    }
+
+    private long clamp(long value) {
+        return Math.max(minRtoNanos, Math.min(maxRtoNanos, value));
+    }
+
+    public synchronized void sample(long rttNanos) {
+        if (srttNanos == 0) {
+            srttNanos = rttNanos;
+            rttVarNanos = rttNanos / 2.0;
+        } else {
+            rttVarNanos = (1 - BETA) * rttVarNanos + BETA * Math.abs(srttNanos - rttNanos);
+            srttNanos = (1 - ALPHA) * srttNanos + ALPHA * rttNanos;
+        }
+        rtoNanos = clamp((long) (srttNanos + 4 * rttVarNanos));
+    }
+
+    /**
+     * Timeout cho lần gửi thứ attempt (bắt đầu từ 1), nhân đôi sau mỗi lần gửi lại.
+     */
+    public synchronized long timeoutNanos(int attempt) {
+        int shift = Math.max(0, Math.min(attempt - 1, 16));
+        return clamp(rtoNanos << shift);
+    }
+
+    public synchronized double getSrttMs() {
+        return srttNanos / 1_000_000.0;
+    }
+
+    public synchronized double getRtoMs() {
+        return rtoNanos / 1_000_000.0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("srtt=%.1fms, rttvar=%.1fms, rto=%.1fms",
+                srttNanos / 1_000_000.0, rttVarNanos / 1_000_000.0, rtoNanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,32 @@
+package server.scanner;
+
+/**
+ * Chế độ thực thi tra cứu DNS của SubdomainScanner.
+ */
+public enum ScanMode {
+    ASYNC_UDP,          // UDP bất đồng bộ trên Netty (mặc định)
+    VIRTUAL_THREADS,    // InetAddress trên virtual thread
+    PLATFORM_THREADS,   // InetAddress trên thread pool cố định dùng chung
+    BLAST;              // Kiểu massdns: template truy vấn mã hóa sẵn, vài socket UDP không chặn luồng gửi
+
+    /**
+     * Đọc chế độ từ chuỗi cấu hình (async, virtual, platform, blast), mặc định ASYNC_UDP.
+     */
+    public static ScanMode fromString(String value) {
+        if (value == null) return ASYNC_UDP;
+        switch (value.trim().toLowerCase()) {
+            case "virtual":
+            case "virtual_threads":
+                return VIRTUAL_THREADS;
+            case "platform":
+            case "platform_threads":
+            case "threads":
+                return PLATFORM_THREADS;
+            case "blast":
+            case "massdns":
+                return BLAST;
+            default:
+                return ASYNC_UDP;
+        }
+    }
+}
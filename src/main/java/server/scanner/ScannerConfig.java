@@ -0,0 +1,100 @@
+package server.scanner;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cấu hình của SubdomainScanner, đọc một lần lúc khởi động server.
+ */
+public class ScannerConfig {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 20000;
+    public static final long DEFAULT_SCAN_DEADLINE_MS = 10 * 60 * 1000L; // 10 phút cho cả lượt scan
+    public static final int DEFAULT_CACHE_SIZE = 250000;
+    public static final long DEFAULT_CACHE_MAX_TTL = 24 * 60 * 60L; // 1 ngày
+    public static final int DEFAULT_RECURSION_WORDS = 1000;
+    public static final long DEFAULT_RECURSION_BUDGET = 100000;
+
+    public ScanMode mode = ScanMode.ASYNC_UDP;
+    public int maxInFlight = DEFAULT_MAX_IN_FLIGHT; // Số truy vấn đang chờ tối đa, dùng chung cho mọi scan
+    public long scanDeadlineMs = DEFAULT_SCAN_DEADLINE_MS; // Hạn chót cho toàn bộ một lượt scan
+    public List<InetSocketAddress> resolvers = new ArrayList<>(); // DNS server cho ASYNC_UDP/BLAST, rỗng = DNS hệ thống
+    public List<InetSocketAddress> nameServers = new ArrayList<>(); // Nameserver có thẩm quyền của domain đích, rỗng = tra NS
+    public boolean zoneTransfer; // Thử AXFR trước khi dò wordlist, mặc định tắt
+    public boolean nsecWalk; // Đi chuỗi NSEC nếu vùng ký DNSSEC bằng NSEC, mặc định tắt
+    public boolean authoritative; // ASYNC_UDP hỏi thẳng nameserver có thẩm quyền (RD=0) thay vì resolver đệ quy
+    public int cacheSize = DEFAULT_CACHE_SIZE; // Số tên tối đa trong cache DNS, 0 = tắt cache
+    public long cacheMaxTtl = DEFAULT_CACHE_MAX_TTL; // Trần TTL (giây) cho câu trả lời trong cache
+    public String cacheFile; // File lưu cache qua lần khởi động lại, null = chỉ giữ trong bộ nhớ
+    public double hedgeBudget; // Tỉ lệ truy vấn hedge tối đa (0.05 = thêm 5%), 0 = tắt; cần từ 2 resolver
+    public double rateLimit; // Truy vấn/giây trên toàn server, 0 = không giới hạn
+    public double resolverRateLimit; // Truy vấn/giây tới mỗi resolver, 0 = không giới hạn
+    public double targetRateLimit; // Truy vấn/giây cho mỗi domain đích, 0 = không giới hạn
+    public long permutations; // Số ứng viên hoán vị tối đa sau lượt wordlist, 0 = tắt
+    public int recursionDepth = 1; // Số tầng nhãn tối đa dưới domain đích, 1 = không đệ quy
+    public int recursionWords = DEFAULT_RECURSION_WORDS; // Số từ đầu wordlist dùng cho các tầng dưới
+    public long recursionBudget = DEFAULT_RECURSION_BUDGET; // Số tên tối đa cho mỗi tầng dưới
+
+    /**
+     * Đọc cấu hình từ system properties (-Dscanner.*), giá trị thiếu dùng mặc định.
+     */
+    public static ScannerConfig fromSystemProperties() {
+        ScannerConfig config = new ScannerConfig();
+        config.mode = ScanMode.fromString(System.getProperty("scanner.mode"));
+        config.maxInFlight = Integer.getInteger("scanner.maxInFlight", DEFAULT_MAX_IN_FLIGHT);
+        config.scanDeadlineMs = Long.getLong("scanner.deadlineMs", DEFAULT_SCAN_DEADLINE_MS);
+        config.resolvers = parseResolvers(System.getProperty("scanner.resolvers", ""));
+        config.nameServers = parseResolvers(System.getProperty("scanner.nameServers", ""));
+        config.zoneTransfer = Boolean.parseBoolean(System.getProperty("scanner.zoneTransfer", "false"));
+        config.nsecWalk = Boolean.parseBoolean(System.getProperty("scanner.nsecWalk", "false"));
+        config.authoritative = Boolean.parseBoolean(System.getProperty("scanner.authoritative", "false"));
+        config.cacheSize = Integer.getInteger("scanner.cacheSize", DEFAULT_CACHE_SIZE);
+        config.cacheMaxTtl = Long.getLong("scanner.cacheMaxTtl", DEFAULT_CACHE_MAX_TTL);
+        config.cacheFile = System.getProperty("scanner.cacheFile");
+        config.hedgeBudget = Double.parseDouble(System.getProperty("scanner.hedgeBudget", "0"));
+        config.rateLimit = Double.parseDouble(System.getProperty("scanner.rateLimit", "0"));
+        config.resolverRateLimit = Double.parseDouble(System.getProperty("scanner.resolverRateLimit", "0"));
+        config.targetRateLimit = Double.parseDouble(System.getProperty("scanner.targetRateLimit", "0"));
+        config.permutations = Long.getLong("scanner.permutations", 0);
+        config.recursionDepth = Integer.getInteger("scanner.recursionDepth", 1);
+        config.recursionWords = Integer.getInteger("scanner.recursionWords", DEFAULT_RECURSION_WORDS);
+        config.recursionBudget = Long.getLong("scanner.recursionBudget", DEFAULT_RECURSION_BUDGET);
+        return config;
+    }
+
+    /**
+     * Đọc danh sách resolver dạng "host:port,host" (thiếu port thì dùng 53).
+     */
+    public static List<InetSocketAddress> parseResolvers(String value) {
+        List<InetSocketAddress> list = new ArrayList<>();
+        for (String item : value.split(",")) {
+            String s = item.trim();
+            if (s.isEmpty()) continue;
+            int colon = s.lastIndexOf(':');
+            if (colon > 0 && s.indexOf(':') == colon) {
+                list.add(new InetSocketAddress(s.substring(0, colon), Integer.parseInt(s.substring(colon + 1))));
+            } else {
+                list.add(new InetSocketAddress(s, 53));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return "mode=" + mode + ", maxInFlight=" + maxInFlight + ", deadlineMs=" + scanDeadlineMs
+                + (resolvers.isEmpty() ? "" : ", resolvers=" + resolvers)
+                + (nameServers.isEmpty() ? "" : ", nameServers=" + nameServers)
+                + (zoneTransfer ? ", zoneTransfer=true" : "")
+                + (nsecWalk ? ", nsecWalk=true" : "")
+                + (authoritative ? ", authoritative=true" : "")
+                + ", cacheSize=" + cacheSize + (cacheFile == null ? "" : ", cacheFile=" + cacheFile)
+                + (hedgeBudget > 0 ? ", hedgeBudget=" + hedgeBudget : "")
+                + (rateLimit > 0 ? ", rateLimit=" + rateLimit + "/s" : "")
+                + (resolverRateLimit > 0 ? ", resolverRateLimit=" + resolverRateLimit + "/s" : "")
+                + (targetRateLimit > 0 ? ", targetRateLimit=" + targetRateLimit + "/s" : "")
+                + (permutations > 0 ? ", permutations=" + permutations : "")
+                + (recursionDepth > 1 ? ", recursionDepth=" + recursionDepth + " (" + recursionWords + " từ, "
+                        + recursionBudget + " tên/tầng)" : "");
+    }
+}
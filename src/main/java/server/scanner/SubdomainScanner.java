@@ -2,67 +2,176 @@ package server.scanner;
 
 import java.io.*;
 import java.net.*;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
 
 /**
  * Quét subdomain từ wordlist, kiểm tra DNS, thu thập domain hợp lệ.
  */
 public class SubdomainScanner {
     private static final String TARGET_DOMAIN = "huflit.edu.vn";
-    private static final int TIMEOUT_MS = 3000; // 3 giây timeout
-    private static final int MAX_THREADS = 1000; // Số thread tối đa (tối ưu cho i5 đời 8, có thể tăng/giảm tuỳ máy)
+    private static final int TIMEOUT_MS = 3000; // 3 giây timeout (HTTP; với DNS là trần của timeout theo RTT)
+    private static final int DNS_RETRIES = 2;   // Số lần gửi lại truy vấn DNS bị mất
+    private static final int MAX_THREADS = 1000; // Trần thread của pool platform, số tra cứu đồng thời do AdaptiveLimiter quyết định
+    private static final int INITIAL_LIMIT = 64;
+    private static final int MIN_LIMIT = 8;
+    private static final int DNS_EVENT_LOOP_THREADS = 2;
+    private static final int DNS_SOCKETS = 4;
+    private static final int POOL_THREADS_PER_RESOLVER = 1;
+    private static final int POOL_SOCKETS_PER_RESOLVER = 2;
+    private static final int BLAST_SOCKETS = 4;
+    private static final double CANDIDATE_FALSE_POSITIVE_RATE = 0.01;
+    private static final int MAX_NAME_LENGTH = 253;
+    private static final long AXFR_TIMEOUT_MS = 5000;
+    private static final long NSEC_WALK_TIMEOUT_MS = 120_000;
+    private static final int NSEC_MAX_NAMES = 1_000_000;
+    private static final int MAX_AUTHORITATIVE_TARGETS = 16; // Số domain đích giữ resolver có thẩm quyền
+    private static final int MAX_CACHED_NS = 1024;
+
+    private static ScannerConfig config = new ScannerConfig();
+    // Giới hạn truy vấn toàn tiến trình, tự điều chỉnh theo RTT và tỉ lệ timeout, không vượt quá maxInFlight
+    private static volatile AdaptiveLimiter limiter = new AdaptiveLimiter(INITIAL_LIMIT, MIN_LIMIT, ScannerConfig.DEFAULT_MAX_IN_FLIGHT);
+    private static DnsResolver resolver;
+    private static DnsQueryClient queryClient; // Truy vấn NS/AXFR lúc dò thông tin vùng
+    // Nameserver có thẩm quyền đã tra theo domain đích, và resolver hỏi thẳng chúng (truy cập theo thứ tự dùng gần nhất)
+    private static final Map<String, List<InetSocketAddress>> nameServerCache = new ConcurrentHashMap<>();
+    private static final Map<String, TargetResolver> authoritativeResolvers = new LinkedHashMap<>(16, 0.75f, true);
+    private static DnsCache cache; // Cache câu trả lời dùng chung cho mọi lượt scan, null nếu tắt
+    // Token bucket giới hạn tốc độ: toàn server, theo resolver và theo domain đích (null = không giới hạn)
+    private static volatile TokenBucket globalRate;
+    private static final Map<InetSocketAddress, TokenBucket> resolverRates = new ConcurrentHashMap<>();
+    private static final Map<String, TokenBucket> targetRates = new ConcurrentHashMap<>();
+    private static ExecutorService blockingExecutor;
+    // Mỗi lượt scan bất đồng bộ có một virtual thread điều phối riêng
+    private static final ExecutorService SCAN_COORDINATOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("scan-coordinator-", 0).factory());
+
+    /**
+     * Cấu hình chế độ thực thi, giới hạn truy vấn đồng thời và hạn chót scan, gọi một lần lúc khởi động server.
+     */
+    public static synchronized void configure(ScannerConfig newConfig) {
+        config = newConfig != null ? newConfig : new ScannerConfig();
+        if (config.mode == null) config.mode = ScanMode.ASYNC_UDP;
+        if (config.maxInFlight <= 0) config.maxInFlight = ScannerConfig.DEFAULT_MAX_IN_FLIGHT;
+        if (config.scanDeadlineMs <= 0) config.scanDeadlineMs = ScannerConfig.DEFAULT_SCAN_DEADLINE_MS;
+        int maxLimit = config.mode == ScanMode.PLATFORM_THREADS ? Math.min(config.maxInFlight, MAX_THREADS) : config.maxInFlight;
+        limiter = new AdaptiveLimiter(INITIAL_LIMIT, MIN_LIMIT, maxLimit);
+        if (resolver != null) {
+            resolver.close();
+            resolver = null;
+        }
+        if (queryClient != null) {
+            queryClient.close();
+            queryClient = null;
+        }
+        authoritativeResolvers.values().forEach(TargetResolver::retire);
+        authoritativeResolvers.clear();
+        nameServerCache.clear();
+        if (blockingExecutor != null) {
+            blockingExecutor.shutdown();
+            blockingExecutor = null;
+        }
+        globalRate = TokenBucket.forRate(config.rateLimit);
+        resolverRates.clear();
+        targetRates.clear();
+        cache = config.cacheSize > 0 ? new DnsCache(config.cacheSize, config.cacheMaxTtl) : null;
+        if (cache != null && config.cacheFile != null) {
+            try {
+                System.out.println("💾 Đã nạp " + cache.load(Path.of(config.cacheFile)) + " câu trả lời DNS từ " + config.cacheFile);
+            } catch (IOException e) {
+                System.err.println("❌ Không đọc được cache DNS: " + e.getMessage());
+            }
+        }
+        System.out.println("⚙️ Scanner: " + config);
+    }
+
+    public static synchronized DnsCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Ghi cache ra file (nếu có cấu hình scanner.cacheFile) sau mỗi lượt scan.
+     */
+    private static void saveCache(DnsCache dnsCache, ScannerConfig cfg) {
+        if (dnsCache == null || cfg.cacheFile == null) return;
+        synchronized (dnsCache) {
+            try {
+                dnsCache.save(Path.of(cfg.cacheFile));
+            } catch (IOException e) {
+                System.err.println("❌ Không ghi được cache DNS: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String cacheStats(DnsCache dnsCache, long hitsBefore, long missesBefore) {
+        if (dnsCache == null) return "";
+        return " Cache: " + (dnsCache.getHits() - hitsBefore) + " hit, " + (dnsCache.getMisses() - missesBefore) + " miss.";
+    }
+
+    /**
+     * Token bucket của resolver (dùng chung giữa chế độ async và blast), null nếu không giới hạn.
+     */
+    private static TokenBucket resolverRate(InetSocketAddress server) {
+        double rate = getConfig().resolverRateLimit;
+        return rate > 0 ? resolverRates.computeIfAbsent(server, k -> TokenBucket.forRate(rate)) : null;
+    }
+
+    /**
+     * Token bucket của domain đích (dùng chung giữa các lượt scan cùng domain), null nếu không giới hạn.
+     */
+    private static TokenBucket targetRate(String targetDomain) {
+        double rate = getConfig().targetRateLimit;
+        return rate > 0 ? targetRates.computeIfAbsent(targetDomain.toLowerCase(), k -> TokenBucket.forRate(rate)) : null;
+    }
+
+    public static synchronized ScannerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Số truy vấn đang chạy trên toàn server (mọi scan cộng lại).
+     */
+    public static int getInFlight() {
+        return limiter.getInFlight();
+    }
+
+    /**
+     * Giới hạn thích ứng dùng chung (giới hạn hiện tại, RTT, tỉ lệ mất gói).
+     */
+    public static AdaptiveLimiter getLimiter() {
+        return limiter;
+    }
     
     /**
      * Đọc wordlist và kiểm tra subdomain.
      */
     public static List<String> scan(String wordlistPath) {
-        List<String> found = new ArrayList<>();
-        List<String> subdomains = new ArrayList<>();
-        
-        // Đọc wordlist
-        try (BufferedReader br = new BufferedReader(new FileReader(wordlistPath))) {
-            String line;
-            //int count = 0;
-            while ((line = br.readLine()) != null /*&& count < 1000*/) {
-                String subdomain = line.trim();
-                if (!subdomain.isEmpty() && !subdomain.startsWith("#")) {
-                    subdomains.add(subdomain);
-                    //count ++;
-                }
-            }
+        List<String> subdomains;
+        try {
+            subdomains = Wordlist.load(wordlistPath).words;
         } catch (IOException e) {
             System.err.println("❌ Lỗi đọc wordlist: " + e.getMessage());
-            return found;
+            return new ArrayList<>();
         }
         
         System.out.println("🔍 Bắt đầu scan " + subdomains.size() + " subdomain...");
         
-        // Scan với thread pool
-        ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS);
-        List<Future<String>> futures = new ArrayList<>();
-        
-        for (String subdomain : subdomains) {
+        // Scan trên executor dùng chung, kết quả thu theo thứ tự hoàn thành
+        ExecutorService executor = getBlockingExecutor();
+        ScanResult result = dispatch(subdomains, subdomain -> {
             String fullDomain = subdomain + "." + TARGET_DOMAIN;
-            futures.add(executor.submit(() -> checkDomain(fullDomain)));
-        }
-        
-        // Thu thập kết quả
-        for (Future<String> future : futures) {
-            try {
-                String result = future.get(5, TimeUnit.SECONDS); // 5 giây timeout cho mỗi thread
-                if (result != null) {
-                    found.add(result);
-                }
-            } catch (Exception e) {
-                // Timeout hoặc lỗi - bỏ qua
-            }
-        }
+            return CompletableFuture.supplyAsync(() -> checkDomain(fullDomain) != null
+                    ? DnsAnswer.found(fullDomain, null, 0)
+                    : DnsAnswer.of(fullDomain, DnsAnswer.Status.NXDOMAIN), executor);
+        }, null, null, globalRate, targetRate(TARGET_DOMAIN));
         
-        executor.shutdown();
-        System.out.println("✅ Scan hoàn thành! Tìm thấy " + found.size() + " subdomain.");
+        System.out.println("✅ Scan hoàn thành! Tìm thấy " + result.totalFound + " subdomain.");
         
-        return found;
+        return result.foundDomains;
     }
     
     /**
@@ -88,97 +197,603 @@ public class SubdomainScanner {
     }
     
     /**
-     * Scan nhanh với DNS lookup (không HTTP) và trả về thống kê.
+     * Scan nhanh với DNS lookup (không HTTP) cho domain mặc định, qua cùng engine DNS với scan theo domain.
      */
     public static ScanResult scanDNSWithStats(String wordlistPath) {
-        List<String> found = new ArrayList<>();
-        List<String> subdomains = new ArrayList<>();
-        
-        // Đọc wordlist
-        try (BufferedReader br = new BufferedReader(new FileReader(wordlistPath))) {
-            String line;
-            //int count = 0;
-            while ((line = br.readLine()) != null /*&& count < 1000*/) { // Giới hạn 1000 subdomain để test
-                String subdomain = line.trim();
-                if (!subdomain.isEmpty() && !subdomain.startsWith("#")) {
-                    subdomains.add(subdomain);
-                    //count++;
-                }
-            }
+        return scanDNSWithStats(wordlistPath, TARGET_DOMAIN);
+    }
+
+    /**
+     * Scan nhanh với DNS lookup (không HTTP) và trả về thống kê.
+     */
+    public static ScanResult scanDNSWithStats(String wordlistPath, String targetDomain) {
+        return scanDNSWithStats(wordlistPath, targetDomain, null);
+    }
+
+    /**
+     * Scan DNS bất đồng bộ: mỗi subdomain tìm thấy được đẩy ngay cho listener,
+     * future hoàn thành với thống kê khi scan xong (foundDomains rỗng, không giữ kết quả trong bộ nhớ).
+     */
+    public static CompletableFuture<ScanResult> scanDNSAsync(String wordlistPath, String targetDomain, ScanListener listener) {
+        return CompletableFuture.supplyAsync(() -> scanDNSWithStats(wordlistPath, targetDomain, listener), SCAN_COORDINATOR);
+    }
+
+    /**
+     * Scan DNS, nếu có listener thì phát kết quả ngay khi tìm thấy thay vì gom vào foundDomains.
+     */
+    public static ScanResult scanDNSWithStats(String wordlistPath, String targetDomain, ScanListener listener) {
+        Wordlist wordlist;
+        try {
+            wordlist = Wordlist.load(wordlistPath);
         } catch (IOException e) {
             System.err.println("❌ Lỗi đọc wordlist: " + e.getMessage());
             return new ScanResult(new ArrayList<>(), 0, 0);
         }
-        
-        System.out.println("🔍 Bắt đầu scan DNS " + subdomains.size() + " subdomain...");
-        
-        for (String subdomain : subdomains) {
-            String fullDomain = subdomain + "." + TARGET_DOMAIN;
-            try {
-                InetAddress.getByName(fullDomain);
-                found.add(fullDomain);
-                System.out.println("✅ Tìm thấy: " + fullDomain);
-            } catch (UnknownHostException ignored) {
-                // Domain không tồn tại
+        List<String> subdomains = wordlist.words;
+        if (listener != null) {
+            listener.onStart(wordlist.id, wordlist.size());
+        }
+        System.out.println("🔍 Bắt đầu scan DNS " + subdomains.size() + " subdomain cho domain: " + targetDomain);
+        ScannerConfig cfg = getConfig();
+        DnsCache dnsCache = getCache();
+        long hitsBefore = dnsCache != null ? dnsCache.getHits() : 0;
+        long missesBefore = dnsCache != null ? dnsCache.getMisses() : 0;
+        if (cfg.zoneTransfer) {
+            // Nameserver cho phép AXFR thì có cả vùng trong một lần hỏi, không cần dò wordlist
+            ScanResult zone = zoneTransfer(targetDomain, listener, cfg);
+            if (zone != null) return zone;
+        }
+        DedupListener walked = null;
+        if (cfg.nsecWalk) {
+            NsecWalker.Result walk = NsecWalker.walk(getQueryClient(), authoritativeServers(targetDomain), targetDomain,
+                    NSEC_MAX_NAMES, NSEC_WALK_TIMEOUT_MS);
+            if (walk.kind == NsecWalker.Kind.NSEC3) {
+                System.out.println("🔐 Vùng " + targetDomain + " dùng NSEC3, không đi chuỗi được, dò wordlist");
+            } else if (walk.kind == NsecWalker.Kind.NSEC) {
+                System.out.println("🔗 Đi chuỗi NSEC: " + walk.names.size() + " tên sau " + walk.queries + " truy vấn"
+                        + (walk.complete ? ", chuỗi khép kín, bỏ qua scan wordlist" : ", chuỗi chưa trọn, dò thêm wordlist"));
+                if (walk.complete) return reportNames(walk.names, listener);
+                // Gửi ngay tên đã biết, lượt wordlist chỉ báo tên mới
+                walked = new DedupListener(listener, walk.names);
+                listener = walked;
             }
         }
-        
-        System.out.println("✅ Scan DNS hoàn thành! Tìm thấy " + found.size() + " subdomain.");
-        return new ScanResult(found, subdomains.size(), found.size());
+        TargetResolver lease = acquireResolver(targetDomain, cfg);
+        try {
+            DnsResolver base = lease != null ? lease.resolver : getResolver();
+            // Domain có wildcard thì mọi tên đều "tồn tại": dò trước để lọc ngay trong lúc scan
+            WildcardFilter wildcard = WildcardFilter.probe(base, targetDomain, TIMEOUT_MS);
+            if (wildcard != null) {
+                System.out.println("🃏 Phát hiện DNS wildcard: " + wildcard + ", bỏ qua các câu trả lời trùng");
+            }
+            boolean recursive = cfg.recursionDepth > 1;
+            // Tên tìm thấy được giữ lại làm gốc/hạt giống cho đệ quy và hoán vị (khi có listener kết quả không gom vào result)
+            Queue<String> hits = new ConcurrentLinkedQueue<>();
+            if (walked != null) hits.addAll(walked.names);
+            ScanListener scanListener = listener != null && (cfg.permutations > 0 || recursive) ? collecting(listener, hits) : listener;
+            DnsResolver dns = dnsCache != null ? new CachingDnsResolver(base, dnsCache) : base;
+            ScanResult result;
+            if (cfg.mode == ScanMode.BLAST) {
+                result = blast(wordlist, targetDomain, scanListener, cfg, dnsCache, wildcard);
+                System.out.println("📈 Điều tiết truy vấn: " + limiter);
+                if (recursive && !result.deadlineReached) {
+                    // Blast chỉ quét tầng 1, các tầng dưới đi qua hàng đợi đệ quy
+                    hits.addAll(result.foundDomains);
+                    DiscoveryQueue queue = newDiscoveryQueue(wordlist, targetDomain, dns, wildcard, cfg);
+                    new LinkedHashSet<>(hits).forEach(queue::addHost);
+                    result = merge(result, recurse(queue, targetDomain, dns, scanListener, wildcard));
+                }
+            } else if (recursive) {
+                // Mọi tầng chung một hàng đợi theo chiều rộng: tầng dưới bắt đầu khi tầng trên còn đang chờ trả lời
+                DiscoveryQueue queue = newDiscoveryQueue(wordlist, targetDomain, dns, wildcard, cfg);
+                queue.addTarget(subdomains);
+                hits.forEach(queue::addHost); // Tên đã có từ chuỗi NSEC
+                result = recurse(queue, targetDomain, dns, scanListener, wildcard);
+            } else {
+                // Gửi truy vấn bất đồng bộ, giới hạn bởi ngân sách truy vấn toàn cục
+                result = dispatch(subdomains, subdomain -> dns.resolve(subdomain + "." + targetDomain), scanListener,
+                        wildcard, globalRate, targetRate(targetDomain));
+            }
+            if (cfg.mode != ScanMode.BLAST) {
+                System.out.println("✅ Scan DNS hoàn thành! Tìm thấy " + result.totalFound + " subdomain"
+                        + (result.deadlineReached ? " (hết hạn scan, " + result.totalUnresolved + " chưa có kết quả)." : ".")
+                        + (result.totalWildcard > 0 ? " Lọc " + result.totalWildcard + " kết quả wildcard." : "")
+                        + cacheStats(dnsCache, hitsBefore, missesBefore));
+                System.out.println("📈 Điều tiết truy vấn: " + limiter
+                        + (base instanceof NettyDnsResolver udp ? ", " + udp.getRtt() : ""));
+                if (base instanceof ResolverPool pool) {
+                    pool.describe().forEach(line -> System.out.println("   🌐 " + line));
+                }
+            }
+            if (cfg.permutations > 0 && !result.deadlineReached) {
+                hits.addAll(result.foundDomains);
+                result = permute(wordlist, hits, targetDomain, dns, listener, wildcard, cfg.permutations, result);
+            }
+            saveCache(dnsCache, cfg);
+            return walked != null ? walked.merge(result) : result;
+        } finally {
+            releaseResolver(lease);
+        }
     }
-    
+
     /**
-     * Scan nhanh với DNS lookup (không HTTP) và trả về thống kê.
+     * Báo danh sách tên đã biết đủ (AXFR, chuỗi NSEC khép kín) làm kết quả scan.
      */
-    public static ScanResult scanDNSWithStats(String wordlistPath, String targetDomain) {
+    private static ScanResult reportNames(List<String> names, ScanListener listener) {
         List<String> found = new ArrayList<>();
-        List<String> subdomains = new ArrayList<>();
-        // Đọc wordlist
-        try (BufferedReader br = new BufferedReader(new FileReader(wordlistPath))) {
-            String line;
-            //int count =0;
-            while ((line = br.readLine()) != null /*&& count <1000*/) {
-                String subdomain = line.trim();
-                if (!subdomain.isEmpty() && !subdomain.startsWith("#")) {
-                    subdomains.add(subdomain);
-                    //count ++;
+        for (String name : names) {
+            if (listener != null) {
+                listener.onFound(name, -1);
+            } else {
+                found.add(name);
+            }
+        }
+        return new ScanResult(found, names.size(), names.size());
+    }
+
+    /**
+     * Listener cho lượt wordlist sau khi đã báo các tên đi được từ chuỗi NSEC: báo tên đó trước,
+     * sau đó chỉ chuyển tiếp tên chưa báo; không có listener thì tự gom kết quả.
+     */
+    private static final class DedupListener implements ScanListener {
+        private final ScanListener delegate;
+        private final Set<String> reported = ConcurrentHashMap.newKeySet();
+        private final Queue<String> collected = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger duplicates = new AtomicInteger();
+        private final List<String> names;
+
+        DedupListener(ScanListener delegate, List<String> names) {
+            this.delegate = delegate;
+            this.names = names;
+            for (String name : names) {
+                reported.add(name);
+                if (delegate != null) {
+                    delegate.onFound(name, -1);
+                } else {
+                    collected.add(name);
                 }
             }
-        } catch (IOException e) {
-            System.err.println("❌ Lỗi đọc wordlist: " + e.getMessage());
-            return new ScanResult(new ArrayList<>(), 0, 0);
         }
-        System.out.println("🔍 Bắt đầu scan DNS " + subdomains.size() + " subdomain cho domain: " + targetDomain);
-        // Sử dụng thread pool để tăng tốc
-        ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS);
-        List<Future<String>> futures = new ArrayList<>();
-        for (String subdomain : subdomains) {
-            String fullDomain = subdomain + "." + targetDomain;
-            futures.add(executor.submit(() -> {
-                try {
-                    InetAddress.getByName(fullDomain);
-                    return fullDomain;
-                } catch (UnknownHostException ignored) {
-                    return null;
+
+        @Override
+        public void onStart(String wordlistId, int wordlistSize) {
+            if (delegate != null) delegate.onStart(wordlistId, wordlistSize);
+        }
+
+        @Override
+        public void onFound(String domain, int index) {
+            if (!reported.add(domain.toLowerCase(Locale.ROOT))) {
+                duplicates.incrementAndGet();
+            } else if (delegate != null) {
+                delegate.onFound(domain, index);
+            } else {
+                collected.add(domain);
+            }
+        }
+
+        ScanResult merge(ScanResult result) {
+            List<String> found = new ArrayList<>(collected);
+            return new ScanResult(found, names.size() + result.totalScanned, names.size() + result.totalFound - duplicates.get(),
+                    result.totalUnresolved, result.deadlineReached, result.totalWildcard);
+        }
+    }
+
+    /**
+     * Thử AXFR song song trên các nameserver có thẩm quyền, trả về toàn bộ tên trong vùng hoặc null nếu
+     * không server nào cho phép.
+     */
+    private static ScanResult zoneTransfer(String targetDomain, ScanListener listener, ScannerConfig cfg) {
+        DnsQueryClient client = getQueryClient();
+        List<InetSocketAddress> servers = authoritativeServers(targetDomain);
+        ZoneTransfer.Result zone = ZoneTransfer.tryAll(client.group(), servers, targetDomain, AXFR_TIMEOUT_MS);
+        if (zone == null) return null;
+        System.out.println("📜 AXFR thành công từ " + zone.server + ": " + zone.names.size() + " tên (" + zone.records
+                + " bản ghi), bỏ qua scan wordlist");
+        return reportNames(zone.names, listener);
+    }
+
+    /**
+     * Nameserver có thẩm quyền của domain: theo scanner.nameServers nếu có cấu hình, không thì tra bản ghi NS.
+     */
+    private static List<InetSocketAddress> authoritativeServers(String targetDomain) {
+        List<InetSocketAddress> configured = getConfig().nameServers;
+        if (!configured.isEmpty()) return configured;
+        String key = DnsAnswer.normalize(targetDomain);
+        List<InetSocketAddress> cached = nameServerCache.get(key);
+        if (cached != null) return cached;
+        List<InetSocketAddress> servers = getQueryClient().nameServers(targetDomain);
+        if (!servers.isEmpty()) {
+            if (nameServerCache.size() >= MAX_CACHED_NS) nameServerCache.clear();
+            nameServerCache.put(key, servers);
+        }
+        return servers;
+    }
+
+    /**
+     * Resolver tới các nameserver có thẩm quyền của một domain đích, kèm số lượt scan đang dùng. Bị bỏ khỏi
+     * cache (LRU, đổi cấu hình) thì chỉ đóng khi lượt scan cuối cùng trả lại, không cắt ngang truy vấn đang chờ.
+     * Các trường được bảo vệ bởi khóa của SubdomainScanner.class.
+     */
+    private static final class TargetResolver {
+        final DnsResolver resolver;
+        int users;
+        boolean retired;
+
+        TargetResolver(DnsResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        void retire() {
+            retired = true;
+            if (users == 0) resolver.close();
+        }
+    }
+
+    /**
+     * Resolver cho lượt scan của domain đích. Chế độ authoritative (ASYNC_UDP) hỏi thẳng các nameserver
+     * có thẩm quyền với RD=0, chia tải trên mọi địa chỉ NS: không tốn thêm vòng cache-miss của resolver đệ quy
+     * cho từng tên, cũng không làm đầy cache của resolver dùng chung. Resolver được giữ lại theo domain và
+     * được giữ chỗ cho lượt scan tới khi gọi releaseResolver. Trả về null = dùng resolver chung (chế độ khác,
+     * hoặc không tìm được nameserver).
+     */
+    private static TargetResolver acquireResolver(String targetDomain, ScannerConfig cfg) {
+        if (!cfg.authoritative || cfg.mode != ScanMode.ASYNC_UDP) return null;
+        String key = DnsAnswer.normalize(targetDomain);
+        synchronized (SubdomainScanner.class) {
+            TargetResolver cached = authoritativeResolvers.get(key);
+            if (cached != null) {
+                cached.users++;
+                return cached;
+            }
+        }
+        List<InetSocketAddress> servers = authoritativeServers(targetDomain);
+        if (servers.isEmpty()) {
+            System.out.println("⚠️ Không tìm được nameserver của " + targetDomain + ", dùng resolver đệ quy");
+            return null;
+        }
+        TargetResolver created;
+        try {
+            created = new TargetResolver(newUdpResolver(servers, false));
+        } catch (Exception e) {
+            System.err.println("❌ Không khởi tạo được resolver tới nameserver có thẩm quyền: " + e.getMessage());
+            return null;
+        }
+        synchronized (SubdomainScanner.class) {
+            if (cfg != config) {
+                created.resolver.close(); // Cấu hình vừa đổi trong lúc tra NS
+                return null;
+            }
+            TargetResolver existing = authoritativeResolvers.putIfAbsent(key, created);
+            if (existing != null) {
+                created.resolver.close();
+                existing.users++;
+                return existing;
+            }
+            created.users++;
+            if (authoritativeResolvers.size() > MAX_AUTHORITATIVE_TARGETS) {
+                Iterator<TargetResolver> eldest = authoritativeResolvers.values().iterator();
+                eldest.next().retire();
+                eldest.remove();
+            }
+        }
+        System.out.println("🎯 Hỏi thẳng nameserver có thẩm quyền của " + targetDomain + ": " + servers);
+        return created;
+    }
+
+    /**
+     * Trả resolver lấy từ acquireResolver khi lượt scan xong; resolver đã bị bỏ khỏi cache thì đóng khi hết người dùng.
+     */
+    private static synchronized void releaseResolver(TargetResolver lease) {
+        if (lease == null) return;
+        if (--lease.users == 0 && lease.retired) lease.resolver.close();
+    }
+
+    private static synchronized DnsQueryClient getQueryClient() {
+        if (queryClient == null) {
+            InetSocketAddress server = config.resolvers.isEmpty() ? NettyDnsResolver.systemNameServer() : config.resolvers.get(0);
+            queryClient = new DnsQueryClient(server, TIMEOUT_MS);
+        }
+        return queryClient;
+    }
+
+    private static DiscoveryQueue newDiscoveryQueue(Wordlist wordlist, String targetDomain, DnsResolver dns,
+                                                    WildcardFilter wildcard, ScannerConfig cfg) {
+        // Wordlist tầng dưới là các từ phổ biến nhất (đầu wordlist), view không sao chép
+        List<String> subWords = wordlist.words.subList(0, Math.min(wordlist.size(), Math.max(0, cfg.recursionWords)));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cfg.scanDeadlineMs);
+        BloomFilter seen = new BloomFilter(wordlist.size() + cfg.recursionBudget * (cfg.recursionDepth - 1),
+                CANDIDATE_FALSE_POSITIVE_RATE);
+        for (int i = 0; i < wordlist.size(); i++) {
+            seen.add(wordlist.word(i));
+        }
+        return new DiscoveryQueue(targetDomain, subWords, cfg.recursionDepth, cfg.recursionBudget, dns, wildcard, deadline, seen);
+    }
+
+    /**
+     * Scan theo hàng đợi đệ quy: host tìm thấy ở mỗi tầng được quét tiếp với wordlist tầng dưới.
+     */
+    private static ScanResult recurse(DiscoveryQueue queue, String targetDomain, DnsResolver dns, ScanListener listener,
+                                      WildcardFilter wildcard) {
+        String suffix = "." + targetDomain;
+        ScanResult result = dispatch(queue, -1, queue::index, subdomain -> queue.track(dns.resolve(subdomain + suffix)),
+                listener, wildcard, globalRate, targetRate(targetDomain));
+        System.out.println("🌲 Scan đệ quy: " + queue.describe());
+        return result;
+    }
+
+    private static ScanResult merge(ScanResult first, ScanResult second) {
+        List<String> found = new ArrayList<>(first.foundDomains);
+        found.addAll(second.foundDomains);
+        return new ScanResult(found, first.totalScanned + second.totalScanned, first.totalFound + second.totalFound,
+                first.totalUnresolved + second.totalUnresolved, second.deadlineReached,
+                first.totalWildcard + second.totalWildcard);
+    }
+
+    /**
+     * Lượt hoán vị: sinh dần ứng viên từ các subdomain đã tìm thấy ghép với wordlist (xem CandidateGenerator)
+     * và tra cứu ngay, tối đa limit tên. Kết quả gộp vào kết quả của lượt wordlist.
+     */
+    private static ScanResult permute(Wordlist wordlist, Collection<String> hits, String targetDomain, DnsResolver dns,
+                                      ScanListener listener, WildcardFilter wildcard, long limit, ScanResult previous) {
+        String suffix = "." + targetDomain;
+        List<String> seeds = new ArrayList<>();
+        for (String hit : new LinkedHashSet<>(hits)) {
+            String name = hit.toLowerCase(Locale.ROOT);
+            if (name.endsWith(suffix) && name.length() > suffix.length()) {
+                seeds.add(name.substring(0, name.length() - suffix.length()));
+            }
+        }
+        if (seeds.isEmpty()) return previous;
+        // Bloom filter chứa sẵn wordlist và tên đã tìm thấy: chỉ tra cứu tên chưa từng hỏi
+        BloomFilter seen = new BloomFilter(wordlist.size() + limit, CANDIDATE_FALSE_POSITIVE_RATE);
+        for (int i = 0; i < wordlist.size(); i++) {
+            seen.add(wordlist.word(i));
+        }
+        seeds.forEach(seen::add);
+        CandidateGenerator candidates = new CandidateGenerator(seeds, wordlist.words, seen,
+                MAX_NAME_LENGTH - suffix.length(), limit);
+        System.out.println("🧬 Hoán vị từ " + seeds.size() + " subdomain đã tìm thấy, tối đa " + limit
+                + " ứng viên (Bloom filter " + seen.sizeInBytes() / 1024 + " KB)");
+        // Tên hoán vị không có trong wordlist của client: chỉ số -1, gửi tên đầy đủ
+        ScanResult result = dispatch(candidates, -1, () -> -1, subdomain -> dns.resolve(subdomain + suffix), listener,
+                wildcard, globalRate, targetRate(targetDomain));
+        System.out.println("✅ Hoán vị xong: " + result.totalScanned + " ứng viên, tìm thấy thêm " + result.totalFound + " subdomain"
+                + (result.deadlineReached ? " (hết hạn scan)." : "."));
+        return merge(previous, result);
+    }
+
+    /**
+     * Listener chuyển tiếp kết quả cho delegate và giữ lại tên tìm thấy.
+     */
+    private static ScanListener collecting(ScanListener delegate, Queue<String> hits) {
+        return new ScanListener() {
+            @Override
+            public void onStart(String wordlistId, int wordlistSize) {
+                delegate.onStart(wordlistId, wordlistSize);
+            }
+
+            @Override
+            public void onFound(String domain, int index) {
+                hits.add(domain);
+                delegate.onFound(domain, index);
+            }
+        };
+    }
+
+    /**
+     * Scan bằng BlastScanner trên các resolver đã cấu hình (hoặc DNS hệ thống).
+     */
+    private static ScanResult blast(Wordlist wordlist, String targetDomain, ScanListener listener, ScannerConfig cfg,
+                                    DnsCache dnsCache, WildcardFilter wildcard) {
+        List<InetSocketAddress> servers = cfg.resolvers.isEmpty()
+                ? List.of(NettyDnsResolver.systemNameServer()) : cfg.resolvers;
+        BlastScanner scanner = new BlastScanner(servers, BLAST_SOCKETS, cfg.maxInFlight, TIMEOUT_MS, DNS_RETRIES, dnsCache, limiter);
+        scanner.setRateLimits(SubdomainScanner::resolverRate, globalRate, targetRate(targetDomain));
+        scanner.setWildcardFilter(wildcard);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cfg.scanDeadlineMs);
+        long start = System.nanoTime();
+        long hitsBefore = dnsCache != null ? dnsCache.getHits() : 0;
+        long missesBefore = dnsCache != null ? dnsCache.getMisses() : 0;
+        ScanResult result;
+        try {
+            result = scanner.scan(wordlist, targetDomain, deadline, listener);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("❌ Lỗi scan blast: " + e.getMessage());
+            return new ScanResult(new ArrayList<>(), wordlist.size(), 0, wordlist.size(), false);
+        }
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        System.out.println("✅ Scan DNS hoàn thành! Tìm thấy " + result.totalFound + " subdomain trong " + elapsedMs
+                + " ms (" + (wordlist.size() * 1000L / elapsedMs) + " truy vấn/s, "
+                + result.totalUnresolved + " chưa có kết quả)."
+                + (result.totalWildcard > 0 ? " Lọc " + result.totalWildcard + " kết quả wildcard." : "")
+                + cacheStats(dnsCache, hitsBefore, missesBefore));
+        return result;
+    }
+
+    /**
+     * Gửi tra cứu cho từng subdomain và xử lý kết quả theo thứ tự hoàn thành.
+     * Cả lượt scan có một hạn chót chung; khi hết hạn, các tra cứu còn đang chờ bị huỷ
+     * và được đếm vào totalUnresolved cùng với các subdomain chưa kịp gửi.
+     */
+    private static ScanResult dispatch(List<String> subdomains, Function<String, CompletableFuture<DnsAnswer>> lookup,
+                                       ScanListener listener, WildcardFilter wildcard, TokenBucket... rateLimits) {
+        ListIterator<String> iterator = subdomains.listIterator();
+        return dispatch(iterator, subdomains.size(), iterator::previousIndex, lookup, listener, wildcard, rateLimits);
+    }
+
+    /**
+     * Như trên với nguồn tên sinh dần (total = -1 nếu không biết trước số tên); index cho biết vị trí
+     * trong wordlist của tên vừa lấy ra, -1 nếu tên không có trong wordlist.
+     */
+    private static ScanResult dispatch(Iterator<String> subdomains, int total, IntSupplier index,
+                                       Function<String, CompletableFuture<DnsAnswer>> lookup,
+                                       ScanListener listener, WildcardFilter wildcard, TokenBucket... rateLimits) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getConfig().scanDeadlineMs);
+        AdaptiveLimiter budget = limiter;
+        Semaphore completed = new Semaphore(0);
+        Set<CompletableFuture<DnsAnswer>> outstanding = ConcurrentHashMap.newKeySet();
+        Queue<String> found = new ConcurrentLinkedQueue<>();
+        AtomicInteger foundCount = new AtomicInteger();
+        AtomicInteger unresolved = new AtomicInteger();
+        AtomicInteger wildcardHits = new AtomicInteger();
+        int dispatched = 0;
+        boolean deadlineReached = false;
+        boolean allCompleted = false;
+        try {
+            while (subdomains.hasNext()) {
+                String subdomain = subdomains.next();
+                int position = index.getAsInt();
+                // Chờ token trước (không giữ suất của limiter trong lúc chờ), rồi mới tới suất đang chờ
+                if (!TokenBucket.awaitAll(deadline, rateLimits)) {
+                    deadlineReached = true;
+                    break;
                 }
-            }));
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !budget.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                    deadlineReached = true;
+                    break;
+                }
+                long startNanos = System.nanoTime();
+                CompletableFuture<DnsAnswer> future = lookup.apply(subdomain);
+                // Trả lời có sẵn (cache) không đi qua mạng, không tính vào RTT/giới hạn
+                boolean local = future.isDone();
+                if (!local) {
+                    TokenBucket.consumeAll(rateLimits);
+                }
+                outstanding.add(future);
+                dispatched++;
+                future.whenComplete((answer, err) -> {
+                    outstanding.remove(future);
+                    if (local || answer == null || answer.status == DnsAnswer.Status.ERROR) {
+                        budget.onIgnore();
+                    } else if (answer.status == DnsAnswer.Status.TIMEOUT) {
+                        budget.onDropped();
+                    } else {
+                        // Chỉ lấy RTT của truy vấn gửi một lần (Karn), lần gửi lại được tính là mất gói
+                        long rtt = answer.rttNanos > 0 ? answer.rttNanos : System.nanoTime() - startNanos;
+                        budget.onSuccess(answer.server, answer.attempts > 1 ? 0 : rtt, answer.attempts - 1);
+                    }
+                    if (answer != null && wildcard != null && wildcard.matches(answer)) {
+                        wildcardHits.incrementAndGet(); // Chỉ là câu trả lời của *.domain
+                    } else if (answer != null && answer.isFound()) {
+                        foundCount.incrementAndGet();
+                        if (listener != null) {
+                            listener.onFound(answer.name, position);
+                        } else {
+                            found.add(answer.name);
+                        }
+                        System.out.println("✅ Tìm thấy: " + answer.name);
+                    } else if (answer == null || !answer.isDefinitive()) {
+                        unresolved.incrementAndGet(); // Timeout, lỗi hoặc bị huỷ
+                    }
+                    completed.release();
+                });
+            }
+            if (!deadlineReached) {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                allCompleted = completed.tryAcquire(dispatched, remaining, TimeUnit.NANOSECONDS);
+                deadlineReached = !allCompleted;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deadlineReached = true;
         }
-        for (Future<String> future : futures) {
-            try {
-                String result = future.get(5, TimeUnit.SECONDS); // 5 giây timeout cho mỗi thread
-                if (result != null) {
-                    found.add(result);
-                    System.out.println("✅ Tìm thấy: " + result);
+        if (!allCompleted) {
+            for (CompletableFuture<DnsAnswer> future : outstanding) {
+                future.cancel(false);
+            }
+            completed.acquireUninterruptibly(dispatched);
+        }
+        int scanned = total >= 0 ? total : dispatched;
+        int skipped = scanned - dispatched;
+        return new ScanResult(new ArrayList<>(found), scanned, foundCount.get(), unresolved.get() + skipped,
+                deadlineReached, wildcardHits.get());
+    }
+
+    /**
+     * Thay engine DNS dùng cho scan (ví dụ trỏ tới DNS server giả lập khi test).
+     */
+    public static synchronized void setResolver(DnsResolver newResolver) {
+        DnsResolver old = resolver;
+        resolver = newResolver;
+        if (old != null && old != newResolver) {
+            old.close();
+        }
+    }
+
+    /**
+     * Lấy engine DNS dùng chung theo chế độ đã cấu hình.
+     */
+    public static synchronized DnsResolver getResolver() {
+        if (resolver == null) {
+            if (config.mode == ScanMode.ASYNC_UDP || config.mode == ScanMode.BLAST) {
+                try {
+                    resolver = newUdpResolver(config.resolvers.isEmpty()
+                            ? List.of(NettyDnsResolver.systemNameServer()) : config.resolvers, true);
+                } catch (Exception e) {
+                    System.err.println("❌ Không khởi tạo được resolver UDP, dùng InetAddress: " + e.getMessage());
+                    resolver = new JdkDnsResolver(getBlockingExecutor());
                 }
-            } catch (Exception e) {
-                // Timeout hoặc lỗi - bỏ qua
+            } else {
+                resolver = new JdkDnsResolver(getBlockingExecutor());
+            }
+        }
+        return resolver;
+    }
+
+    /**
+     * Resolver UDP bất đồng bộ tới các server: nhiều server thì gom thành ResolverPool.
+     */
+    private static DnsResolver newUdpResolver(List<InetSocketAddress> servers, boolean recursionDesired)
+            throws InterruptedException {
+        if (servers.size() > 1) {
+            // Nhiều upstream: chia tải theo độ trễ, loại resolver xấu
+            ResolverPool pool = new ResolverPool(servers, POOL_THREADS_PER_RESOLVER, POOL_SOCKETS_PER_RESOLVER,
+                    TIMEOUT_MS, DNS_RETRIES, getConfig().hedgeBudget);
+            pool.setRateLimits(SubdomainScanner::resolverRate);
+            pool.setRecursionDesired(recursionDesired);
+            return pool;
+        }
+        InetSocketAddress server = servers.get(0);
+        NettyDnsResolver udp = new NettyDnsResolver(server, DNS_EVENT_LOOP_THREADS, DNS_SOCKETS, TIMEOUT_MS, DNS_RETRIES);
+        udp.setRateLimit(resolverRate(server));
+        udp.setRecursionDesired(recursionDesired);
+        return udp;
+    }
+
+    /**
+     * Executor dùng chung cho các tác vụ blocking (InetAddress, HTTP):
+     * virtual thread hoặc một thread pool cố định duy nhất cho cả tiến trình.
+     */
+    private static synchronized ExecutorService getBlockingExecutor() {
+        if (blockingExecutor == null) {
+            if (config.mode == ScanMode.PLATFORM_THREADS) {
+                blockingExecutor = Executors.newFixedThreadPool(MAX_THREADS);
+            } else {
+                blockingExecutor = Executors.newThreadPerTaskExecutor(
+                        Thread.ofVirtual().name("scan-vt-", 0).factory());
             }
         }
-        executor.shutdown();
-        System.out.println("✅ Scan DNS hoàn thành! Tìm thấy " + found.size() + " subdomain.");
-        return new ScanResult(found, subdomains.size(), found.size());
+        return blockingExecutor;
     }
     
+    /**
+     * Nhận subdomain ngay khi được tìm thấy (gọi từ thread của engine DNS, cần xử lý nhanh).
+     */
+    public interface ScanListener {
+        /**
+         * Gọi một lần trước khi bắt đầu tra cứu, với mã định danh và kích thước wordlist.
+         */
+        default void onStart(String wordlistId, int wordlistSize) {
+        }
+
+        /**
+         * @param index vị trí của subdomain trong wordlist, -1 nếu tên không lấy từ wordlist
+         *              (hoán vị, tầng sâu hơn của scan đệ quy)
+         */
+        void onFound(String domain, int index);
+    }
+
     /**
      * Kết quả scan với thống kê chi tiết.
      */
@@ -186,15 +801,30 @@ public class SubdomainScanner {
         public final List<String> foundDomains;
         public final int totalScanned;
         public final int totalFound;
+        public final int totalUnresolved; // Timeout, lỗi hoặc chưa kịp tra cứu trước hạn chót
+        public final boolean deadlineReached;
+        public final int totalWildcard; // Tên chỉ trả lời bằng bản ghi wildcard, đã bị lọc
         
         public ScanResult(List<String> foundDomains, int totalScanned, int totalFound) {
+            this(foundDomains, totalScanned, totalFound, 0, false);
+        }
+
+        public ScanResult(List<String> foundDomains, int totalScanned, int totalFound, int totalUnresolved, boolean deadlineReached) {
+            this(foundDomains, totalScanned, totalFound, totalUnresolved, deadlineReached, 0);
+        }
+
+        public ScanResult(List<String> foundDomains, int totalScanned, int totalFound, int totalUnresolved,
+                          boolean deadlineReached, int totalWildcard) {
             this.foundDomains = foundDomains;
             this.totalScanned = totalScanned;
             this.totalFound = totalFound;
+            this.totalUnresolved = totalUnresolved;
+            this.deadlineReached = deadlineReached;
+            this.totalWildcard = totalWildcard;
         }
         
         public int getTotalNotFound() {
-            return totalScanned - totalFound;
+            return totalScanned - totalFound - totalUnresolved;
         }
     }
 } 
\ No newline at end of file
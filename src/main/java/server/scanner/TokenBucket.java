@@ -0,0 +1,89 @@
+package server.scanner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket không khóa theo kiểu GCRA: chỉ giữ một mốc thời gian "token tiếp theo" trong
+ * AtomicLong, lấy token bằng compareAndSet. Cho phép dồn tối đa burst token khi rảnh; lấy quá
+ * (ghi nợ) thì các lượt sau phải chờ bù, nên lưu lượng trung bình không vượt rate.
+ */
+public class TokenBucket {
+    private static final double BURST_SECONDS = 0.05; // Mặc định cho dồn lượng truy vấn của 50ms
+
+    private final double ratePerSecond;
+    private final long intervalNanos;
+    private final long toleranceNanos; // (burst - 1) x interval
+    private final AtomicLong nextFreeNanos;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0) throw new IllegalArgumentException("rate phải > 0");
+        this.ratePerSecond = ratePerSecond;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.toleranceNanos = (Math.max(1, burst) - 1) * intervalNanos;
+        this.nextFreeNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Bucket cho ratePerSecond truy vấn/giây, null nếu rate <= 0 (không giới hạn).
+     */
+    public static TokenBucket forRate(double ratePerSecond) {
+        if (ratePerSecond <= 0) return null;
+        return new TokenBucket(ratePerSecond, (int) Math.max(1, ratePerSecond * BURST_SECONDS));
+    }
+
+    /**
+     * Thời gian (nano giây) phải chờ tới khi có token, 0 nếu có ngay. Không lấy token.
+     */
+    public long delayNanos() {
+        return Math.max(0, nextFreeNanos.get() - toleranceNanos - System.nanoTime());
+    }
+
+    /**
+     * Giữ chỗ một token, trả về thời gian (nano giây) phải chờ tới lượt của token đó, 0 nếu dùng
+     * được ngay. Người gọi phải gửi đúng hẹn (hoặc gửi ngay và chấp nhận ghi nợ như lần gửi lại).
+     */
+    public long reserve() {
+        while (true) {
+            long next = nextFreeNanos.get();
+            long now = System.nanoTime();
+            if (nextFreeNanos.compareAndSet(next, Math.max(next, now) + intervalNanos)) {
+                return Math.max(0, next - toleranceNanos - now);
+            }
+        }
+    }
+
+    public double getRate() {
+        return ratePerSecond;
+    }
+
+    /**
+     * Chờ tới khi mọi bucket đều có token (bucket null được bỏ qua), false nếu qua hạn chót
+     * (System.nanoTime) trước đó. Không lấy token: gửi xong mới gọi consumeAll.
+     */
+    public static boolean awaitAll(long deadlineNanos, TokenBucket... buckets) throws InterruptedException {
+        while (true) {
+            long wait = 0;
+            for (TokenBucket bucket : buckets) {
+                if (bucket != null) wait = Math.max(wait, bucket.delayNanos());
+            }
+            if (wait == 0) return true;
+            if (System.nanoTime() + wait - deadlineNanos > 0) return false;
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Lấy token ở mọi bucket khác null.
+     */
+    public static void consumeAll(TokenBucket... buckets) {
+        for (TokenBucket bucket : buckets) {
+            if (bucket != null) bucket.reserve();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.0f/s", ratePerSecond);
+    }
+}
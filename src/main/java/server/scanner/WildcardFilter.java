@@ -0,0 +1,101 @@
+package server.scanner;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phát hiện DNS wildcard (*.domain) trước khi scan: hỏi vài nhãn ngẫu nhiên chắc chắn không tồn tại,
+ * nếu vẫn có địa chỉ thì ghi lại dấu vân tay (tập IP, đích CNAME) của câu trả lời wildcard.
+ * Trong lúc scan, câu trả lời khớp dấu vân tay bị loại ngay thay vì báo là tìm thấy. Dấu vân tay chỉ được
+ * học lúc dò (nhiều vòng, vì wildcard thường xoay vòng trong một dải IP); lúc scan chỉ đọc, để host thật
+ * dùng chung IP với wildcard không kéo thêm IP của nó vào tập và kết quả không phụ thuộc thứ tự trả lời.
+ */
+public class WildcardFilter {
+    private static final int PROBES = 10;             // Số nhãn mỗi vòng dò
+    private static final int MAX_ROUNDS = 6;
+    private static final int QUIET_ROUNDS = 2;        // Dò tiếp tới khi chừng ấy vòng liền không thấy IP mới
+    private static final int LABEL_LENGTH = 16;
+    private static final String LABEL_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+    private final String targetDomain;
+    private final Set<String> addresses = ConcurrentHashMap.newKeySet();
+    private final Set<String> cnames = ConcurrentHashMap.newKeySet();
+
+    private WildcardFilter(String targetDomain) {
+        this.targetDomain = targetDomain;
+    }
+
+    /**
+     * Dò wildcard của targetDomain qua resolver, trả về null nếu domain không có wildcard
+     * (hoặc không dò được trong timeoutMs).
+     */
+    public static WildcardFilter probe(DnsResolver resolver, String targetDomain, long timeoutMs) {
+        WildcardFilter filter = new WildcardFilter(targetDomain);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int quiet = 0;
+        for (int round = 0; round < MAX_ROUNDS && quiet < QUIET_ROUNDS; round++) {
+            List<CompletableFuture<DnsAnswer>> futures = new ArrayList<>();
+            for (int i = 0; i < PROBES; i++) {
+                futures.add(resolver.resolve(randomLabel() + "." + targetDomain));
+            }
+            boolean learned = false;
+            for (CompletableFuture<DnsAnswer> future : futures) {
+                DnsAnswer answer;
+                try {
+                    answer = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (Exception e) {
+                    future.cancel(false);
+                    continue;
+                }
+                if (answer != null && answer.isFound()) {
+                    learned |= filter.addresses.addAll(answer.addresses);
+                    if (answer.cname != null) learned |= filter.cnames.add(answer.cname);
+                }
+            }
+            // Không có wildcard thì dừng ngay; có thì dò thêm để gom đủ dải IP, lúc scan không học thêm
+            if (filter.addresses.isEmpty() && filter.cnames.isEmpty()) break;
+            quiet = learned ? 0 : quiet + 1;
+        }
+        return filter.addresses.isEmpty() && filter.cnames.isEmpty() ? null : filter;
+    }
+
+    static String randomLabel() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder sb = new StringBuilder(LABEL_LENGTH);
+        for (int i = 0; i < LABEL_LENGTH; i++) {
+            sb.append(LABEL_CHARS.charAt(random.nextInt(LABEL_CHARS.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Câu trả lời là của wildcard: cùng đích CNAME, hoặc có IP thuộc tập IP wildcard. Không thay đổi tập,
+     * gọi được từ nhiều thread cùng lúc.
+     */
+    public boolean matches(List<String> answerAddresses, String answerCname) {
+        if (answerCname != null && cnames.contains(answerCname)) return true;
+        for (String address : answerAddresses) {
+            if (addresses.contains(address)) return true;
+        }
+        return false;
+    }
+
+    public boolean matches(DnsAnswer answer) {
+        return answer.isFound() && matches(answer.addresses, answer.cname);
+    }
+
+    /**
+     * Có cần đọc CNAME để so (wildcard trả về CNAME).
+     */
+    public boolean hasCnames() {
+        return !cnames.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "*." + targetDomain + " -> " + addresses + (cnames.isEmpty() ? "" : " CNAME " + cnames);
+    }
+}
@@ -0,0 +1,364 @@
+package server.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wordlist subdomain đọc một lần và dùng chung (chỉ đọc) cho mọi lượt scan: mọi từ nằm liền nhau
+ * trong một mảng byte, vị trí từng từ trong một mảng int, không giữ String nào. Từ được chuẩn hóa
+ * (chữ thường), kiểm tra là tên DNS hợp lệ và bỏ trùng ngay lúc nạp. Mã định danh theo nội dung
+ * (SHA-256) để client có cùng wordlist nhận kết quả dưới dạng chỉ số thay vì tên đầy đủ.
+ * <p>
+ * Wordlist lớn nên biên dịch trước sang dạng nhị phân (xem {@link #compile}): header, bảng vị trí
+ * và các từ đã đóng gói, được ánh xạ thẳng vào bộ nhớ (FileChannel.map) nên khởi động không phải
+ * đọc/chuẩn hóa lại và dữ liệu nằm ngoài heap, dù wordlist lớn bao nhiêu. File thay đổi (thời gian
+ * sửa hoặc kích thước) thì lượt scan sau tự nạp lại, lượt scan đang chạy vẫn dùng bản cũ.
+ */
+public class Wordlist {
+    private static final int MAX_WORD_LENGTH = 200; // Chừa chỗ cho domain đích trong giới hạn 255 byte
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final Map<String, Wordlist> LOADED = new ConcurrentHashMap<>();
+
+    // Định dạng nhị phân: MAGIC, VERSION, số từ, số dòng bị bỏ, độ dài arena (int), mã định danh
+    // (16 byte), rồi (số từ + 1) vị trí int và arena. Số nguyên big-endian.
+    public static final String COMPILED_SUFFIX = ".swl";
+    private static final int MAGIC = 0x53574C21; // "SWL!"
+    private static final int VERSION = 1;
+    private static final int ID_BYTES = 16;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES + ID_BYTES;
+
+    public final String path;
+    public final String id;
+    public final List<String> words;  // View tạo String khi cần, không giữ trong bộ nhớ
+    public final int skipped;         // Số dòng bị bỏ (không hợp lệ hoặc trùng)
+    public final boolean mapped;      // Ánh xạ từ file nhị phân (ngoài heap)
+    private final ByteBuffer arena;   // Các từ ASCII chữ thường nối liền nhau (chỉ đọc tuyệt đối, an toàn đa luồng)
+    private final IntBuffer offsets;  // Từ i nằm trong [offsets[i], offsets[i + 1])
+    private Path source;              // File thực sự đã đọc và thời điểm sửa/kích thước lúc đọc
+    private FileTime modified;
+    private long fileSize;
+
+    private Wordlist(String path, String id, ByteBuffer arena, IntBuffer offsets, int skipped, boolean mapped) {
+        this.path = path;
+        this.id = id;
+        this.arena = arena;
+        this.offsets = offsets;
+        this.skipped = skipped;
+        this.mapped = mapped;
+        this.words = new WordView();
+    }
+
+    /**
+     * Wordlist đã nạp của file này; lần đầu thì đọc file, các lần sau dùng lại bản trong bộ nhớ
+     * cho tới khi file thay đổi. Nếu cạnh file text có bản biên dịch (path + ".swl") mới hơn thì
+     * dùng bản đó; path cũng có thể trỏ thẳng vào file nhị phân.
+     */
+    public static Wordlist load(String path) throws IOException {
+        String key = Path.of(path).toAbsolutePath().normalize().toString();
+        Path source = resolve(path);
+        Wordlist cached = LOADED.get(key);
+        if (cached != null && cached.isCurrent(source)) return cached;
+        synchronized (LOADED) {
+            cached = LOADED.get(key);
+            if (cached == null) {
+                cached = read(path, source);
+                LOADED.put(key, cached);
+            } else if (!cached.isCurrent(source)) {
+                Wordlist fresh;
+                try {
+                    fresh = read(path, source);
+                } catch (IOException e) {
+                    // File hỏng hoặc đang được ghi dở: giữ bản đang dùng, lần load sau thử lại
+                    System.err.println("⚠️ Không nạp lại được wordlist " + path + ", dùng bản cũ: " + e.getMessage());
+                    return cached;
+                }
+                cached = fresh;
+                LOADED.put(key, cached);
+                System.out.println("🔄 Wordlist " + path + " đã thay đổi, nạp lại: " + cached.size() + " từ");
+            }
+            return cached;
+        }
+    }
+
+    /**
+     * Nạp sẵn các wordlist lúc khởi động (file không có thì bỏ qua).
+     */
+    public static void preload(String... paths) {
+        for (String path : paths) {
+            if (!Files.exists(resolve(path))) continue;
+            try {
+                Wordlist wordlist = load(path);
+                System.out.println("📚 Đã nạp wordlist " + wordlist.source + ": " + wordlist.size() + " từ"
+                        + (wordlist.skipped > 0 ? " (bỏ " + wordlist.skipped + " dòng trùng/không hợp lệ)" : "")
+                        + ", " + wordlist.arena.capacity() / 1024 + " KB" + (wordlist.mapped ? " ánh xạ từ file" : ""));
+            } catch (IOException e) {
+                System.err.println("❌ Lỗi đọc wordlist " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * File sẽ đọc cho path: bản biên dịch cạnh file text nếu có và không cũ hơn file text.
+     */
+    private static Path resolve(String path) {
+        Path text = Path.of(path);
+        Path compiled = Path.of(path + COMPILED_SUFFIX);
+        try {
+            if (Files.exists(compiled) && (!Files.exists(text)
+                    || Files.getLastModifiedTime(compiled).compareTo(Files.getLastModifiedTime(text)) >= 0)) {
+                return compiled;
+            }
+        } catch (IOException ignored) {
+            // Không đọc được thời gian sửa, dùng file text
+        }
+        return text;
+    }
+
+    private boolean isCurrent(Path file) {
+        try {
+            return file.equals(source) && Files.getLastModifiedTime(file).equals(modified) && Files.size(file) == fileSize;
+        } catch (IOException e) {
+            return true; // File vừa bị xoá/đang được thay: giữ bản đang dùng
+        }
+    }
+
+    private static Wordlist read(String path, Path file) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(file);
+        long size = Files.size(file);
+        Wordlist wordlist;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(magic, 0);
+            if (magic.position() == Integer.BYTES && magic.getInt(0) == MAGIC) {
+                wordlist = map(path, channel, size);
+            } else {
+                wordlist = parse(path, Files.readAllBytes(file));
+            }
+        }
+        wordlist.source = file;
+        wordlist.modified = modified;
+        wordlist.fileSize = size;
+        return wordlist;
+    }
+
+    /**
+     * Ánh xạ file nhị phân vào bộ nhớ, kiểm tra header và bảng offset (tăng dần, nằm trong arena) trước khi
+     * dùng, để file cụt hoặc hỏng bị từ chối lúc nạp thay vì lỗi giữa lượt scan. Không đọc qua các từ.
+     */
+    private static Wordlist map(String path, FileChannel channel, long size) throws IOException {
+        size = Math.min(size, channel.size()); // File bị cắt sau lúc đọc kích thước
+        if (size > Integer.MAX_VALUE) throw new IOException("File wordlist nhị phân quá 2GB");
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < HEADER_SIZE || data.getInt(4) != VERSION) {
+            throw new IOException("File wordlist nhị phân không đúng định dạng hoặc khác phiên bản");
+        }
+        int count = data.getInt(8);
+        int skipped = data.getInt(12);
+        int arenaLength = data.getInt(16);
+        long offsetsEnd = HEADER_SIZE + (count + 1L) * Integer.BYTES;
+        if (count < 0 || arenaLength < 0 || offsetsEnd + arenaLength != size) {
+            throw new IOException("File wordlist nhị phân bị hỏng (kích thước không khớp header)");
+        }
+        byte[] id = new byte[ID_BYTES];
+        data.get(20, id);
+        IntBuffer offsets = data.slice(HEADER_SIZE, (int) offsetsEnd - HEADER_SIZE).asIntBuffer();
+        int previous = 0;
+        for (int i = 0; i <= count; i++) {
+            int offset = offsets.get(i);
+            if (offset < previous || offset > arenaLength || (i == 0 && offset != 0)) {
+                throw new IOException("File wordlist nhị phân bị hỏng (offset " + i + " không hợp lệ)");
+            }
+            previous = offset;
+        }
+        if (previous != arenaLength) {
+            throw new IOException("File wordlist nhị phân bị hỏng (offset cuối không khớp arena)");
+        }
+        ByteBuffer arena = data.slice((int) offsetsEnd, arenaLength);
+        return new Wordlist(path, HexFormat.of().formatHex(id), arena, offsets, skipped, true);
+    }
+
+    /**
+     * Biên dịch file text sang dạng nhị phân ánh xạ được. Ghi ra file tạm rồi đổi tên nên server
+     * đang chạy không bao giờ thấy file ghi dở, và các lượt scan đang ánh xạ bản cũ không bị ảnh hưởng.
+     */
+    public static Wordlist compile(String textPath, String outputPath) throws IOException {
+        Wordlist wordlist = parse(textPath, Files.readAllBytes(Path.of(textPath)));
+        Path output = Path.of(outputPath).toAbsolutePath();
+        Path temp = Files.createTempFile(output.getParent(), output.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + wordlist.offsets.capacity() * Integer.BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(wordlist.size()).putInt(wordlist.skipped)
+                    .putInt(wordlist.arena.capacity()).put(HexFormat.of().parseHex(wordlist.id));
+            header.asIntBuffer().put(wordlist.offsets.duplicate().rewind());
+            writeFully(channel, header.rewind());
+            writeFully(channel, wordlist.arena.duplicate().rewind());
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return wordlist;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    /**
+     * Tách dòng, bỏ dòng trống/comment (#), chuẩn hóa và bỏ trùng, giữ nguyên thứ tự xuất hiện đầu tiên.
+     */
+    static Wordlist parse(String path, byte[] data) {
+        int lines = 1;
+        for (byte b : data) {
+            if (b == '\n') lines++;
+        }
+        byte[] arena = new byte[data.length];
+        int[] offsets = new int[lines + 1];
+        int[] table = new int[Integer.highestOneBit(Math.max(1, lines) * 2) * 2]; // Bảng băm (chỉ số từ + 1) để bỏ trùng
+        int count = 0;
+        int cursor = 0;
+        int skipped = 0;
+        int pos = 0;
+        while (pos < data.length) {
+            int end = pos;
+            while (end < data.length && data[end] != '\n') end++;
+            int start = pos;
+            int stop = end;
+            pos = end + 1;
+            while (start < stop && (data[start] & 0xFF) <= ' ') start++;
+            while (stop > start && (data[stop - 1] & 0xFF) <= ' ') stop--;
+            if (start == stop || data[start] == '#') continue;
+            int length = normalize(data, start, stop, arena, cursor);
+            if (length < 0 || !insert(table, arena, offsets, cursor, length, count)) {
+                skipped++;
+                continue;
+            }
+            offsets[count++] = cursor;
+            cursor += length;
+            offsets[count] = cursor;
+        }
+        arena = Arrays.copyOf(arena, cursor);
+        offsets = Arrays.copyOf(offsets, count + 1);
+        return new Wordlist(path, computeId(arena, offsets), ByteBuffer.wrap(arena), IntBuffer.wrap(offsets), skipped, false);
+    }
+
+    /**
+     * Chép từ sang arena ở dạng chữ thường, trả về độ dài hoặc -1 nếu không phải tên DNS hợp lệ
+     * (chỉ chữ, số, '-', '_', nhãn 1..63 ký tự ngăn bởi '.').
+     */
+    private static int normalize(byte[] data, int start, int stop, byte[] arena, int cursor) {
+        if (stop - start > MAX_WORD_LENGTH) return -1;
+        int label = 0;
+        for (int i = start; i < stop; i++) {
+            int c = data[i] & 0xFF;
+            if (c == '.') {
+                if (label == 0) return -1;
+                label = 0;
+            } else {
+                if (c >= 'A' && c <= 'Z') {
+                    c |= 0x20;
+                } else if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                    return -1;
+                }
+                if (++label > MAX_LABEL_LENGTH) return -1;
+            }
+            arena[cursor + i - start] = (byte) c;
+        }
+        return label == 0 ? -1 : stop - start;
+    }
+
+    /**
+     * Thêm từ vào bảng băm, false nếu đã có (từ trùng).
+     */
+    private static boolean insert(int[] table, byte[] arena, int[] offsets, int cursor, int length, int count) {
+        int hash = 0x811C9DC5; // FNV-1a
+        for (int i = cursor; i < cursor + length; i++) {
+            hash = (hash ^ arena[i]) * 0x01000193;
+        }
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                table[slot] = count + 1;
+                return true;
+            }
+            int other = entry - 1;
+            if (Arrays.equals(arena, offsets[other], offsets[other + 1], arena, cursor, cursor + length)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Mã định danh = 32 ký tự hex đầu của SHA-256 trên các từ (đã chuẩn hóa) nối bằng '\n'
+     * (không phụ thuộc CRLF/LF, hoa thường, dòng comment hay dòng trùng trong file).
+     */
+    private static String computeId(byte[] arena, int[] offsets) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i + 1 < offsets.length; i++) {
+                digest.update(arena, offsets[i], offsets[i + 1] - offsets[i]);
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, ID_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int size() {
+        return offsets.capacity() - 1;
+    }
+
+    /**
+     * Từ thứ index (tạo String mới).
+     */
+    public String word(int index) {
+        byte[] bytes = new byte[length(index)];
+        arena.get(offsets.get(index), bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    int length(int index) {
+        return offsets.get(index + 1) - offsets.get(index);
+    }
+
+    /**
+     * Byte thứ i của từ index (ASCII chữ thường), để so/ghi trực tiếp mà không tạo String.
+     */
+    byte byteAt(int index, int i) {
+        return arena.get(offsets.get(index) + i);
+    }
+
+    private final class WordView extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return word(index);
+        }
+
+        @Override
+        public int size() {
+            return Wordlist.this.size();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package server.scanner;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.dns.*;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thử chuyển vùng (AXFR qua TCP) từ các nameserver có thẩm quyền của domain đích. Server cấu hình sai
+ * cho phép AXFR trả về toàn bộ vùng trong một kết nối, khi đó không cần dò wordlist nữa.
+ */
+public class ZoneTransfer {
+    private ZoneTransfer() {
+    }
+
+    /**
+     * Vùng đã chuyển: các tên (không gồm đỉnh vùng và tên wildcard) và server đã cho phép.
+     */
+    public static final class Result {
+        public final InetSocketAddress server;
+        public final List<String> names;
+        public final int records;
+
+        Result(InetSocketAddress server, List<String> names, int records) {
+            this.server = server;
+            this.names = names;
+            this.records = records;
+        }
+    }
+
+    /**
+     * Thử AXFR song song trên mọi server, trả về kết quả của server thành công đầu tiên,
+     * null nếu tất cả từ chối, lỗi hoặc quá timeoutMs.
+     */
+    public static Result tryAll(EventLoopGroup group, List<InetSocketAddress> servers, String zone, long timeoutMs) {
+        if (servers.isEmpty()) return null;
+        CompletableFuture<Result> winner = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        List<String> errors = new ArrayList<>();
+        for (InetSocketAddress server : servers) {
+            transfer(group, server, zone, timeoutMs).whenComplete((result, err) -> {
+                if (err == null) {
+                    winner.complete(result);
+                    return;
+                }
+                synchronized (errors) {
+                    errors.add(server.getAddress().getHostAddress() + ": " + err.getMessage());
+                }
+                if (failed.incrementAndGet() == servers.size()) {
+                    winner.complete(null);
+                }
+            });
+        }
+        try {
+            Result result = winner.get(timeoutMs + 500, TimeUnit.MILLISECONDS);
+            if (result == null) {
+                synchronized (errors) {
+                    System.out.println("🔒 AXFR " + zone + " không thành công (" + String.join(", ", errors) + ")");
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * AXFR từ một server: vùng bắt đầu và kết thúc bằng bản ghi SOA, có thể trải qua nhiều message
+     * DNS trên cùng kết nối TCP.
+     */
+    public static CompletableFuture<Result> transfer(EventLoopGroup group, InetSocketAddress server, String zone, long timeoutMs) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        String apex = DnsQueryClient.normalize(zone);
+        Bootstrap b = new Bootstrap();
+        b.group(group)
+         .channel(NioSocketChannel.class)
+         .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeoutMs)
+         .handler(new ChannelInitializer<SocketChannel>() {
+             @Override
+             protected void initChannel(SocketChannel ch) {
+                 ch.pipeline().addLast(new TcpDnsQueryEncoder(), new TcpDnsResponseDecoder(),
+                         new TransferHandler(server, apex, future));
+             }
+         });
+        b.connect(server).addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                future.completeExceptionally(new IllegalStateException("không kết nối được TCP"));
+                return;
+            }
+            Channel channel = f.channel();
+            ScheduledFuture<?> timeout = channel.eventLoop().schedule(() -> {
+                future.completeExceptionally(new IllegalStateException("quá thời gian"));
+                channel.close();
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+            future.whenComplete((r, err) -> {
+                timeout.cancel(false);
+                channel.close();
+            });
+            DnsQuery query = new DefaultDnsQuery(ThreadLocalRandom.current().nextInt(65536), DnsOpCode.QUERY);
+            query.setRecursionDesired(false);
+            query.addRecord(DnsSection.QUESTION, new DefaultDnsQuestion(apex + ".", DnsRecordType.AXFR));
+            channel.writeAndFlush(query);
+        });
+        return future;
+    }
+
+    /**
+     * Gom bản ghi tới khi gặp SOA lần thứ hai (kết thúc vùng).
+     */
+    private static final class TransferHandler extends SimpleChannelInboundHandler<DnsResponse> {
+        private final InetSocketAddress server;
+        private final String apex;
+        private final CompletableFuture<Result> future;
+        private final Set<String> names = new LinkedHashSet<>();
+        private int records;
+        private int soaCount;
+
+        TransferHandler(InetSocketAddress server, String apex, CompletableFuture<Result> future) {
+            this.server = server;
+            this.apex = apex;
+            this.future = future;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, DnsResponse response) {
+            if (response.code() != DnsResponseCode.NOERROR) {
+                future.completeExceptionally(new IllegalStateException(response.code().toString()));
+                return;
+            }
+            for (DnsQueryClient.Record record : DnsQueryClient.records(response, DnsSection.ANSWER)) {
+                if (records++ == 0 && !record.type.equals(DnsRecordType.SOA)) {
+                    future.completeExceptionally(new IllegalStateException("câu trả lời không bắt đầu bằng SOA"));
+                    return;
+                }
+                if (record.type.equals(DnsRecordType.SOA) && ++soaCount == 2) {
+                    future.complete(new Result(server, new ArrayList<>(names), records));
+                    return;
+                }
+                if (record.name.endsWith("." + apex) && !record.name.startsWith("*.")) {
+                    names.add(record.name);
+                }
+            }
+            if (records == 0) {
+                future.completeExceptionally(new IllegalStateException("vùng rỗng"));
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            future.completeExceptionally(new IllegalStateException("server đóng kết nối giữa chừng"));
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            future.completeExceptionally(cause);
+            ctx.close();
+        }
+    }
+}